@@ -0,0 +1,51 @@
+package com.faex.bookings.rest;
+
+import com.faex.bookings.service.Booking;
+import com.faex.bookings.service.BookingRange;
+import com.faex.bookings.service.BookingWindow;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingRestControllerBenchmark {
+
+  private final BookingRestController controller = new BookingRestController(null, null, null, null, new BookingWindow(1), null);
+  private String from, to;
+  private BookingRequestBody body;
+
+  @Setup
+  public void setUp() {
+    var now = LocalDate.now(ZoneId.of("Atlantic/Bermuda"));
+    from = now.plusDays(1).toString();
+    to = now.plusMonths(1).toString();
+    body = BookingRequestBody.builder()
+      .email("benchmark@testing.test")
+      .fullName("Benchmark")
+      .checkIn(now.plusDays(2).toString())
+      .checkOut(now.plusDays(5).toString())
+      .build();
+  }
+
+  @Benchmark
+  public BookingRange buildDefaultBookingRange() {
+    return controller.buildBookingRange(null, null, null);
+  }
+
+  @Benchmark
+  public BookingRange buildBookingRange() {
+    return controller.buildBookingRange(from, to, null);
+  }
+
+  @Benchmark
+  public Booking buildBooking() {
+    return controller.buildBooking(body);
+  }
+}
@@ -0,0 +1,96 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.BookingSpringBootApp;
+import com.faex.bookings.orm.BookingEntity;
+import com.faex.bookings.rest.Availability;
+import com.faex.bookings.rest.AvailabilityBitmap;
+import com.faex.bookings.rest.AvailabilityRanges;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingServiceBenchmark {
+
+  private ConfigurableApplicationContext context;
+  private BookingService bookingService;
+  private BookingRange window;
+  private Booking created, updated;
+  private String updatedId;
+  private boolean flip;
+
+  @Setup
+  public void setUp() {
+    context = new SpringApplicationBuilder(BookingSpringBootApp.class)
+      .web(WebApplicationType.NONE)
+      .properties(
+        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN")
+      .run();
+    bookingService = context.getBean(BookingService.class);
+    var now = LocalDate.now(ZoneId.of("Atlantic/Bermuda"));
+    var t0 = (int) now.plusDays(1).toEpochDay();
+    window = BookingRange.builder().from(t0).to((int) now.plusMonths(1).toEpochDay()).build();
+    // every third night is sold so the window has mixed availability
+    for (int date = t0; date < window.getTo() - 6; date += 3) {
+      bookingService.createBooking(booking(date, date + 1));
+    }
+    created = booking(window.getTo() - 6, window.getTo() - 4);
+    updated = booking(window.getTo() - 3, window.getTo() - 2);
+    updatedId = String.valueOf(bookingService.createBooking(updated).getId());
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Availability getAvailability() {
+    return bookingService.getAvailability(window);
+  }
+
+  @Benchmark
+  public AvailabilityRanges getAvailabilityRanges() {
+    return bookingService.getAvailabilityRanges(window);
+  }
+
+  @Benchmark
+  public AvailabilityBitmap getAvailabilityBitmap() {
+    return bookingService.getAvailabilityBitmap(window);
+  }
+
+  @Benchmark
+  public void createAndDeleteBooking() {
+    bookingService.deleteBooking(String.valueOf(bookingService.createBooking(created).getId()));
+  }
+
+  @Benchmark
+  public BookingEntity updateBooking() {
+    flip = !flip;
+    var checkIn = window.getTo() - (flip ? 2 : 3);
+    return bookingService.updateBooking(updatedId, booking(checkIn, checkIn + 1));
+  }
+
+  private static Booking booking(int checkIn, int checkOut) {
+    return Booking.builder()
+      .dates(IntStream.range(checkIn, checkOut).boxed().toList())
+      .checkIn(checkIn)
+      .checkOut(checkOut)
+      .email("benchmark@testing.test")
+      .fullName("Benchmark")
+      .build();
+  }
+}
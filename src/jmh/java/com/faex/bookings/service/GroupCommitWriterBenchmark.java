@@ -0,0 +1,83 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.BookingSpringBootApp;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Create-and-cancel throughput of the direct writer against the single-writer group commit, with threads booking four shared nights
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(16)
+@Fork(1)
+public class GroupCommitWriterBenchmark {
+
+  @Param({"direct", "group"})
+  public String mode;
+
+  private ConfigurableApplicationContext context;
+  private BookingService bookingService;
+  private int t0;
+
+  @Setup
+  public void setUp() {
+    context = new SpringApplicationBuilder(BookingSpringBootApp.class)
+      .web(WebApplicationType.NONE)
+      // arguments rather than default properties, so they override application.properties
+      .run(
+        "--spring.datasource.url=jdbc:h2:mem:writer-" + mode + ";DB_CLOSE_DELAY=-1",
+        "--spring.jpa.show-sql=false",
+        "--bookings.writer.mode=" + mode,
+        "--bookings.capacity=16", // every thread can hold a night at once, so the writers rather than conflicts set the pace
+        "--bookings.snapshot.path=",
+        "--bookings.journal.path=",
+        "--logging.level.root=WARN");
+    bookingService = context.getBean(BookingService.class);
+    t0 = (int) LocalDate.now(ZoneId.of("Atlantic/Bermuda")).plusDays(1).toEpochDay();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  // booked and conflicts are reported per second next to the primary result
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Guest {
+    public long booked, conflicts;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      booked = 0;
+      conflicts = 0;
+    }
+  }
+
+  @Benchmark
+  public void createAndDeleteBooking(Guest guest) {
+    var night = t0 + ThreadLocalRandom.current().nextInt(4);
+    try {
+      bookingService.deleteBooking(String.valueOf(bookingService.createBooking(Booking.builder()
+        .dates(List.of(night))
+        .checkIn(night)
+        .checkOut(night + 1)
+        .email("benchmark@testing.test")
+        .fullName("Benchmark")
+        .build()).getId()));
+      guest.booked++;
+    } catch (DatesUnavailableException e) {
+      guest.conflicts++;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.BookingSpringBootApp;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Booking throughput of a fixed number of threads spread over a growing number of properties, all booking the same night
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(8)
+@Fork(1)
+public class PropertyShardsBenchmark {
+
+  @Param({"1", "2", "4", "8"})
+  public int properties;
+
+  private ConfigurableApplicationContext context;
+  private BookingService bookingService;
+  private int night;
+
+  @Setup
+  public void setUp() {
+    context = new SpringApplicationBuilder(BookingSpringBootApp.class)
+      .web(WebApplicationType.NONE)
+      // arguments rather than default properties, so they override application.properties
+      .run(
+        "--spring.datasource.url=jdbc:h2:mem:shards;DB_CLOSE_DELAY=-1",
+        "--spring.jpa.show-sql=false",
+        "--bookings.capacity=64", // enough for every thread to hold the night at once
+        "--bookings.properties=0,1,2,3,4,5,6,7",
+        "--bookings.snapshot.path=",
+        "--bookings.journal.path=",
+        "--logging.level.root=WARN");
+    bookingService = context.getBean(BookingService.class);
+    night = (int) LocalDate.now(ZoneId.of("Atlantic/Bermuda")).plusDays(5).toEpochDay();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  // booked and conflicts are reported per second next to the primary result
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Guest {
+    private static final AtomicInteger threads = new AtomicInteger();
+    private Booking booking;
+    public long booked, conflicts;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      booked = 0;
+      conflicts = 0;
+    }
+
+    @Setup
+    public void setUp(PropertyShardsBenchmark benchmark) {
+      booking = Booking.builder()
+        .property(threads.getAndIncrement() % benchmark.properties)
+        .dates(List.of(benchmark.night))
+        .checkIn(benchmark.night)
+        .checkOut(benchmark.night + 1)
+        .email("benchmark@testing.test")
+        .fullName("Benchmark")
+        .build();
+    }
+  }
+
+  @Benchmark
+  public void createAndDeleteBooking(Guest guest) {
+    try {
+      bookingService.deleteBooking(String.valueOf(bookingService.createBooking(guest.booking).getId()));
+      guest.booked++;
+    } catch (DatesUnavailableException e) {
+      guest.conflicts++; // guarded updates that lost a race on the same booking_date row
+    }
+  }
+}
@@ -2,8 +2,10 @@ package com.faex.bookings;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BookingSpringBootApp {
 	public static void main(String[] args) {
 		SpringApplication.run(BookingSpringBootApp.class, args);
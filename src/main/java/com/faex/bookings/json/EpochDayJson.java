@@ -0,0 +1,37 @@
+package com.faex.bookings.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+// Epoch-day integers are exposed as ISO dates on the wire
+public class EpochDayJson {
+
+  public static class Serializer extends StdSerializer<Integer> {
+    public Serializer() {
+      super(Integer.class);
+    }
+
+    @Override
+    public void serialize(Integer value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+      generator.writeString(LocalDate.ofEpochDay(value).toString());
+    }
+  }
+
+  public static class Deserializer extends StdDeserializer<Integer> {
+    public Deserializer() {
+      super(Integer.class);
+    }
+
+    @Override
+    public Integer deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+      return (int) LocalDate.parse(parser.getValueAsString()).toEpochDay();
+    }
+  }
+}
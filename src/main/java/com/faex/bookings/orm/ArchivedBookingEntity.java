@@ -0,0 +1,31 @@
+package com.faex.bookings.orm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "booking_archive", indexes = @Index(name = "booking_archive_email_id", columnList = "email, id"))
+public class ArchivedBookingEntity implements Persistable<Long> {
+  @Id
+  private Long id;
+  private long version;
+  private int property;
+  private long createdTime, updatedTime, deletedTime, archivedTime;
+  private String email, fullName;
+  private int checkIn, checkOut;
+  private BookingEntity.Status status;
+
+  @Override
+  public boolean isNew() {
+    return true; // moved here once, never updated
+  }
+}
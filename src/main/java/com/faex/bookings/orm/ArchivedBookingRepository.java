@@ -0,0 +1,8 @@
+package com.faex.bookings.orm;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBookingEntity, Long> {
+}
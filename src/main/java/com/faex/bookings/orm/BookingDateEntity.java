@@ -4,18 +4,53 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
 
 import javax.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
 
 @Entity
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "booking_date", indexes = {@Index(name = "booking_id_index", columnList="booking_id", unique = false)})
-public class BookingDateEntity {
+@IdClass(BookingDateEntity.Key.class)
+@Table(name = "booking_date", indexes = @Index(name = "idx_booking_date_updated", columnList = "updated"))
+public class BookingDateEntity implements Persistable<BookingDateEntity.Key> {
   @Id
-  private String id;
-  @Column(name = "booking_id", nullable = false)
-  private long bookingId;
+  private int property;
+  @Id
+  private int date;
+  @Column(nullable = false)
+  private int capacity;
+  @Column(nullable = false)
+  private int booked;
+  private Instant updated;
+  @Transient
+  private boolean persisted;
+
+  @Override
+  public Key getId() {
+    return new Key(property, date);
+  }
+
+  @Override
+  public boolean isNew() {
+    return !persisted;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markPersisted() {
+    persisted = true;
+  }
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Key implements Serializable {
+    private int property;
+    private int date;
+  }
 }
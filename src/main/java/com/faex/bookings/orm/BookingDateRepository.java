@@ -1,12 +1,39 @@
 package com.faex.bookings.orm;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface BookingDateRepository extends JpaRepository<BookingDateEntity, String> {
-  List<BookingDateEntity> findAllByBookingId(long bookingId);
-  List<BookingDateEntity> findAllByIdBetween(String from, String to);
+public interface BookingDateRepository extends JpaRepository<BookingDateEntity, BookingDateEntity.Key> {
+  List<BookingDateEntity> findAllByPropertyAndDateBetween(int property, int from, int to);
+
+  List<BookingDateEntity> findAllByPropertyAndDateIn(int property, Collection<Integer> dates);
+
+  List<BookingDateEntity> findAllByUpdatedGreaterThanEqual(Instant since);
+
+  @Modifying
+  @Query("update BookingDateEntity d set d.booked = d.booked + 1, d.updated = CURRENT_TIMESTAMP " +
+    "where d.property = :property and d.date in :dates and d.booked < d.capacity")
+  int incrementBookedInBatch(@Param("property") int property, @Param("dates") Collection<Integer> dates);
+
+  @Modifying
+  @Query("update BookingDateEntity d set d.booked = d.booked + :count, d.updated = CURRENT_TIMESTAMP " +
+    "where d.property = :property and d.date = :date and d.booked + :count <= d.capacity")
+  int incrementBookedBy(@Param("property") int property, @Param("date") int date, @Param("count") int count);
+
+  @Modifying
+  @Query("delete from BookingDateEntity d where d.date < :before")
+  int deleteAllByDateLessThan(@Param("before") int before);
+
+  @Modifying
+  @Query("update BookingDateEntity d set d.booked = d.booked - 1, d.updated = CURRENT_TIMESTAMP " +
+    "where d.property = :property and d.date in :dates and d.booked > 0")
+  int decrementBookedInBatch(@Param("property") int property, @Param("dates") Collection<Integer> dates);
 }
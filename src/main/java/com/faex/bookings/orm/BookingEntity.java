@@ -1,5 +1,8 @@
 package com.faex.bookings.orm;
 
+import com.faex.bookings.json.EpochDayJson;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,6 +13,10 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
 @Data
@@ -17,12 +24,24 @@ import javax.persistence.Id;
 @NoArgsConstructor
 @AllArgsConstructor
 @Accessors(chain = true)
+@Table(indexes = {
+  @Index(name = "booking_email_id", columnList = "email, id"),
+  @Index(name = "booking_status_id", columnList = "status, id"),
+  @Index(name = "booking_check_out", columnList = "checkOut")
+})
 public class BookingEntity {
   @Id
-  @GeneratedValue(strategy = GenerationType.SEQUENCE)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_sequence")
+  @SequenceGenerator(name = "booking_sequence", sequenceName = "booking_sequence", allocationSize = 50)
   private long id;
+  @Version
+  private long version;
+  private int property;
   private long createdTime, updatedTime, deletedTime;
-  private String email, fullName, checkIn, checkOut;
+  private String email, fullName;
+  @JsonSerialize(using = EpochDayJson.Serializer.class)
+  @JsonDeserialize(using = EpochDayJson.Deserializer.class)
+  private int checkIn, checkOut;
   private Status status;
   public enum Status { CONFIRMED, DELETED }
 }
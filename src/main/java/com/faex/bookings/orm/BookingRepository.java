@@ -1,8 +1,33 @@
 package com.faex.bookings.orm;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface BookingRepository extends JpaRepository<BookingEntity, Long> {
+  String SUMMARY = "select new com.faex.bookings.orm.BookingSummary(b.id, b.version, b.property, b.status, b.checkIn, b.checkOut, b.email) from BookingEntity b ";
+
+  @Query(SUMMARY + "where b.id = :id")
+  Optional<BookingSummary> findSummaryById(@Param("id") long id);
+
+  // keyset pages: seek past the last id of the previous page along the (..., id) indexes instead of counting an offset
+  @Query(SUMMARY + "where b.email = :email and b.id > :after order by b.id")
+  List<BookingSummary> findSummariesByEmailAfter(@Param("email") String email, @Param("after") long after, Pageable pageable);
+
+  @Query(SUMMARY + "where b.status = :status and b.id > :after order by b.id")
+  List<BookingSummary> findSummariesByStatusAfter(@Param("status") BookingEntity.Status status, @Param("after") long after, Pageable pageable);
+
+  @Query(SUMMARY + "where b.email = :email and b.status = :status and b.id > :after order by b.id")
+  List<BookingSummary> findSummariesByEmailAndStatusAfter(@Param("email") String email, @Param("status") BookingEntity.Status status,
+                                                          @Param("after") long after, Pageable pageable);
+
+  List<BookingEntity> findAllByStatusOrderById(BookingEntity.Status status, Pageable pageable);
+
+  List<BookingEntity> findAllByCheckOutLessThanOrderByCheckOut(int checkOut, Pageable pageable);
 }
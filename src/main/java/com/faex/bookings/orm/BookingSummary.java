@@ -0,0 +1,25 @@
+package com.faex.bookings.orm;
+
+import com.faex.bookings.json.EpochDayJson;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Lookup projection of a booking, selected directly by the repository queries instead of loading the entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingSummary {
+  private long id;
+  private long version;
+  private int property;
+  private BookingEntity.Status status;
+  @JsonSerialize(using = EpochDayJson.Serializer.class)
+  @JsonDeserialize(using = EpochDayJson.Deserializer.class)
+  private int checkIn, checkOut;
+  private String email;
+}
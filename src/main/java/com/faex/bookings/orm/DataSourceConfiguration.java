@@ -0,0 +1,31 @@
+package com.faex.bookings.orm;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// The spring.datasource primary, fronted by a ReplicaRoutingDataSource when bookings.replica.url names a read replica
+@Configuration
+public class DataSourceConfiguration {
+
+  @Bean
+  public DataSource dataSource(DataSourceProperties properties, @Value("${bookings.replica.url:}") String replicaUrl) {
+    var primary = properties.initializeDataSourceBuilder().build();
+    if (replicaUrl.isBlank()) {
+      return primary;
+    }
+    if (replicaUrl.trim().equals(properties.determineUrl())) {
+      throw new IllegalStateException("bookings.replica.url must name a database other than the primary, which seeding the replica would overwrite");
+    }
+    var replica = DataSourceBuilder.create()
+      .url(replicaUrl)
+      .username(properties.determineUsername())
+      .password(properties.determinePassword())
+      .build();
+    return new ReplicaRoutingDataSource(primary, replica);
+  }
+}
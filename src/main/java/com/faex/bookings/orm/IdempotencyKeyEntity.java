@@ -0,0 +1,31 @@
+package com.faex.bookings.orm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "idempotency_key", indexes = @Index(columnList = "createdTime"))
+public class IdempotencyKeyEntity implements Persistable<String> {
+  @Id
+  private String id;
+  // hex SHA-256 of the canonical request
+  @Column(nullable = false, length = 64)
+  private String fingerprint;
+  @Column(nullable = false, length = 4096)
+  private String response;
+  private long createdTime;
+
+  @Override
+  public boolean isNew() {
+    return true; // written once, never updated
+  }
+}
@@ -0,0 +1,17 @@
+package com.faex.bookings.orm;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, String> {
+
+  @Transactional
+  @Modifying
+  @Query("delete from IdempotencyKeyEntity k where k.createdTime < :before")
+  int deleteAllByCreatedTimeLessThan(@Param("before") long before);
+}
@@ -0,0 +1,57 @@
+package com.faex.bookings.orm;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Hands out replica connections to transactions begun inside onReplica and primary connections to everything else
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+  private enum Target { PRIMARY, REPLICA }
+
+  private static final ThreadLocal<Boolean> onReplica = ThreadLocal.withInitial(() -> false);
+
+  private final DataSource primary, replica;
+
+  public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+    this.primary = primary;
+    this.replica = replica;
+    setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+    setDefaultTargetDataSource(primary);
+    afterPropertiesSet();
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  public DataSource getReplica() {
+    return replica;
+  }
+
+  // the connection is chosen when the transaction begins, so the whole transaction stays on the replica
+  public static <T> T onReplica(Supplier<T> supplier) {
+    onReplica.set(true);
+    try {
+      return supplier.get();
+    } finally {
+      onReplica.remove();
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return onReplica.get() ? Target.REPLICA : Target.PRIMARY;
+  }
+
+  @Override
+  public void close() throws Exception {
+    for (var dataSource : new DataSource[]{primary, replica}) {
+      if (dataSource instanceof AutoCloseable closeable) {
+        closeable.close();
+      }
+    }
+  }
+}
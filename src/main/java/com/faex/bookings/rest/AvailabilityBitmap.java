@@ -0,0 +1,17 @@
+package com.faex.bookings.rest;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Bit i (byte i / 8, bit i % 8 from the least significant) is set when day from + i is available
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityBitmap {
+  private String from, to;
+  private String bitmap;
+  private int count;
+}
@@ -0,0 +1,71 @@
+package com.faex.bookings.rest;
+
+import com.faex.bookings.service.AvailabilityIndex;
+import com.faex.bookings.service.BookingRange;
+import com.faex.bookings.service.BookingWindow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Serialized availability responses per (property, from, to, format), valid until a booking touches one of their dates or the window rolls
+@Component
+public class AvailabilityCache {
+
+  public record Entry(long version, String eTag, byte[] body) {
+  }
+
+  private record Key(int property, int from, int to, AvailabilityFormat format) {
+  }
+
+  private final AvailabilityIndex availabilityIndex;
+  private final BookingWindow bookingWindow;
+  private final ObjectMapper objectMapper;
+  private final Map<Key, Entry> entries;
+  private int windowFrom;
+
+  public AvailabilityCache(AvailabilityIndex availabilityIndex, BookingWindow bookingWindow, ObjectMapper objectMapper,
+                           @Value("${bookings.availability-cache.size:256}") int size) {
+    this.availabilityIndex = availabilityIndex;
+    this.bookingWindow = bookingWindow;
+    this.objectMapper = objectMapper;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        return size() > size;
+      }
+    };
+  }
+
+  public Entry get(BookingRange bookingRange, AvailabilityFormat format, Supplier<?> availability) {
+    var key = new Key(bookingRange.getProperty(), bookingRange.getFrom(), bookingRange.getTo(), format);
+    Entry entry;
+    synchronized (entries) {
+      if (windowFrom != bookingWindow.getFrom()) {
+        windowFrom = bookingWindow.getFrom();
+        entries.clear();
+      }
+      entry = entries.get(key);
+    }
+    if (entry != null && availabilityIndex.isUnchangedSince(bookingRange.getProperty(), entry.version(), bookingRange.getFrom(), bookingRange.getTo())) {
+      return entry;
+    }
+    // read before building, so a booking committed meanwhile marks the entry stale
+    var version = availabilityIndex.getVersion(bookingRange.getProperty());
+    try {
+      entry = new Entry(version, "\"" + bookingRange.getProperty() + "-" + version + "-" + bookingRange.getFrom() + "-" + bookingRange.getTo()
+        + "-" + format.name().toLowerCase() + "\"",
+        objectMapper.writeValueAsBytes(availability.get()));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+    synchronized (entries) {
+      entries.put(key, entry);
+    }
+    return entry;
+  }
+}
@@ -1,16 +1,16 @@
 package com.faex.bookings.rest;
 
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-@Data
+// Immutable, so BookingWindow can hand the same instance to every response for a date and remaining count
+@Value
 @Builder
-@NoArgsConstructor
-@AllArgsConstructor
+@Jacksonized
 public class AvailabilityDate {
-  private String date;
-  private Status status;
+  String date;
+  Status status;
+  int remaining;
   public enum Status { AVAILABLE, UNAVAILABLE }
 }
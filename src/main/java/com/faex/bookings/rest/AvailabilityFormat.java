@@ -0,0 +1,6 @@
+package com.faex.bookings.rest;
+
+// Representations of GET /dates: a fragment per day, runs of equal status, or a base64 day bitmap
+public enum AvailabilityFormat {
+  DATES, RANGES, BITMAP
+}
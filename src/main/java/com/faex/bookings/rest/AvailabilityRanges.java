@@ -0,0 +1,18 @@
+package com.faex.bookings.rest;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityRanges {
+  private String from, to;
+  private List<AvailabilityRun> ranges;
+  private int count;
+}
@@ -0,0 +1,15 @@
+package com.faex.bookings.rest;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityRun {
+  private String from, to;
+  private AvailabilityDate.Status status;
+}
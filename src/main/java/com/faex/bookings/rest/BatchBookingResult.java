@@ -0,0 +1,17 @@
+package com.faex.bookings.rest;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchBookingResult {
+  private Status status;
+  private Long id;
+  private String error;
+  public enum Status { CREATED, CONFLICT, INVALID, FAILED }
+}
@@ -0,0 +1,23 @@
+package com.faex.bookings.rest;
+
+import com.faex.bookings.json.EpochDayJson;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingHold {
+  private String id;
+  private int property;
+  @JsonSerialize(using = EpochDayJson.Serializer.class)
+  @JsonDeserialize(using = EpochDayJson.Deserializer.class)
+  private int checkIn, checkOut;
+  // epoch millis after which the dates are released unless booked
+  private long expiresAt;
+}
@@ -0,0 +1,18 @@
+package com.faex.bookings.rest;
+
+import com.faex.bookings.orm.BookingSummary;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingPage {
+  private List<BookingSummary> bookings;
+  private Long next;
+}
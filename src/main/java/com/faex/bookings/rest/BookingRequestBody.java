@@ -6,8 +6,10 @@ import lombok.Data;
 @Data
 @Builder
 public class BookingRequestBody {
+  private Integer property;
   private String email;
   private String fullName;
   private String checkIn;
   private String checkOut;
+  private String hold;
 }
@@ -1,116 +1,337 @@
 package com.faex.bookings.rest;
 
 import com.faex.bookings.orm.BookingEntity;
+import com.faex.bookings.orm.BookingSummary;
+import com.faex.bookings.service.AvailabilityFeed;
+import com.faex.bookings.service.AvailabilityIndex;
 import com.faex.bookings.service.Booking;
+import com.faex.bookings.service.BookingMetrics;
 import com.faex.bookings.service.BookingRange;
 import com.faex.bookings.service.BookingService;
+import com.faex.bookings.service.BookingVersionMismatchException;
+import com.faex.bookings.service.BookingWindow;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 @RestController
 @RequestMapping(value = "/")
-public record BookingRestController(BookingService bookingService) {
+public record BookingRestController(BookingService bookingService, AvailabilityIndex availabilityIndex, AvailabilityFeed availabilityFeed,
+                                    BookingMetrics bookingMetrics, BookingWindow bookingWindow, AvailabilityCache availabilityCache) {
+
+  public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+  public static final int MAX_PAGE_SIZE = 500;
 
   @GetMapping(value = "/dates")
-  public Availability getAvailability(String from, String to) {
-    return bookingService.getAvailability(buildBookingRange(from, to));
+  public ResponseEntity<byte[]> getAvailability(String from, String to, Integer property, String format,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    var bookingRange = buildBookingRange(from, to, property);
+    var availabilityFormat = availabilityFormat(format);
+    var entry = availabilityCache.get(bookingRange, availabilityFormat, () -> switch (availabilityFormat) {
+      case DATES -> bookingService.getAvailability(bookingRange);
+      case RANGES -> bookingService.getAvailabilityRanges(bookingRange);
+      case BITMAP -> bookingService.getAvailabilityBitmap(bookingRange);
+    });
+    if (matchesETag(ifNoneMatch, entry.eTag())) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entry.eTag()).cacheControl(CacheControl.noCache()).build();
+    }
+    return ResponseEntity.ok()
+      .eTag(entry.eTag())
+      .cacheControl(CacheControl.noCache())
+      .contentType(MediaType.APPLICATION_JSON)
+      .body(entry.body());
+  }
+
+  @GetMapping(value = "/dates/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamAvailability(@RequestParam(required = false) Long since,
+                                       @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+    var bookingRange = buildBookingRange(null, null, null);
+    var emitter = new SseEmitter(0L);
+    var subscription = availabilityFeed.subscribe(since != null ? since : lastEventId,
+      () -> availabilityIndex.snapshot(AvailabilityIndex.DEFAULT_PROPERTY, bookingRange.getFrom(), bookingRange.getTo()),
+      event -> emitter.send(event.type().equals(AvailabilityFeed.HEARTBEAT)
+        ? SseEmitter.event().comment(event.type())
+        : SseEmitter.event()
+          .id(String.valueOf(event.version()))
+          .name(event.type())
+          .data(event.changes().stream().map(change -> bookingWindow.getFragment(change.date(), change.remaining())).toList(),
+            MediaType.APPLICATION_JSON)));
+    emitter.onCompletion(subscription::cancel);
+    emitter.onTimeout(subscription::cancel);
+    emitter.onError(e -> subscription.cancel());
+    return emitter;
+  }
+
+  @GetMapping(value = "/bookings/{id}")
+  public ResponseEntity<BookingSummary> getBooking(@PathVariable String id) {
+    try {
+      var bookingSummary = bookingService.getBooking(id);
+      return ResponseEntity.ok().eTag("\"" + bookingSummary.getVersion() + "\"").body(bookingSummary);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Booking not found", e);
+    }
+  }
+
+  @GetMapping(value = "/bookings")
+  public BookingPage findBookings(@RequestParam(required = false) String email, @RequestParam(required = false) String status,
+                                  @RequestParam(defaultValue = "0") long after, @RequestParam(defaultValue = "50") int limit) {
+    BookingEntity.Status bookingStatus;
+    try {
+      bookingStatus = status == null || status.isBlank() ? null : BookingEntity.Status.valueOf(status.trim().toUpperCase());
+      if ((email == null || email.isBlank()) && bookingStatus == null) {
+        throw new IllegalArgumentException("Filter by email or status"); // an unfiltered scan would page out every guest's details
+      }
+      if (limit < 1 || limit > MAX_PAGE_SIZE) {
+        throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+      }
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad parameters", e);
+    }
+    var bookings = bookingService.findBookings(email == null || email.isBlank() ? null : email, bookingStatus, after, limit);
+    return BookingPage.builder()
+      .bookings(bookings)
+      .next(bookings.size() == limit ? bookings.get(bookings.size() - 1).getId() : null)
+      .build();
   }
 
   @PostMapping(value = "/bookings")
-  @ResponseStatus(HttpStatus.CREATED)
-  public BookingEntity createBooking(@RequestBody BookingRequestBody body) {
+  public ResponseEntity<BookingEntity> createBooking(@RequestBody BookingRequestBody body,
+                                                     @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+    var booking = validate("create", () -> buildBooking(body));
     try {
-      return bookingService.createBooking(buildBooking(body));
+      var bookingEntity = bookingService.createBooking(booking, idempotencyKey);
+      return ResponseEntity.status(HttpStatus.CREATED).eTag(eTag(bookingEntity)).body(bookingEntity);
     } catch (Exception e) {
-      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unable to create booking", e);
+      throw rejected("create", "Unable to create booking", e);
     }
   }
 
+  @PostMapping(value = "/bookings/batch")
+  public List<BatchBookingResult> createBookings(@RequestBody List<BookingRequestBody> bodies) {
+    var results = new BatchBookingResult[bodies.size()];
+    var indexes = new ArrayList<Integer>();
+    var bookings = new ArrayList<Booking>();
+    for (int i = 0; i < bodies.size(); i++) {
+      try {
+        var body = bodies.get(i);
+        bookings.add(validate("batch", () -> buildBooking(body)));
+        indexes.add(i);
+      } catch (ResponseStatusException e) {
+        results[i] = BatchBookingResult.builder()
+          .status(BatchBookingResult.Status.INVALID)
+          .error(e.getCause() != null ? e.getCause().getMessage() : e.getReason())
+          .build();
+      }
+    }
+    var created = bookingService.createBookings(bookings);
+    for (int i = 0; i < indexes.size(); i++) {
+      results[indexes.get(i)] = created.get(i);
+      if (created.get(i).getStatus() != BatchBookingResult.Status.CREATED) {
+        bookingMetrics.reject("batch", switch (created.get(i).getStatus()) {
+          case CONFLICT -> BookingMetrics.CONFLICT;
+          case INVALID -> BookingMetrics.INVALID;
+          default -> BookingMetrics.ERROR;
+        });
+      }
+    }
+    return List.of(results);
+  }
+
   @PutMapping(value = "/bookings/{id}")
-  public BookingEntity updateBooking(@PathVariable String id, @RequestBody BookingRequestBody body) {
+  public ResponseEntity<BookingEntity> updateBooking(@PathVariable String id, @RequestBody BookingRequestBody body,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                     @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+    var booking = validate("update", () -> buildBooking(body));
     try {
-      return bookingService.updateBooking(id, buildBooking(body));
+      var bookingEntity = bookingService.updateBooking(id, booking, expectedVersion(ifMatch), idempotencyKey);
+      return ResponseEntity.ok().eTag(eTag(bookingEntity)).body(bookingEntity);
     } catch (Exception e) {
-      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unable to update booking", e);
+      throw rejected("update", "Unable to update booking", e, expectedVersion(ifMatch));
+    }
+  }
+
+  @PostMapping(value = "/holds")
+  public ResponseEntity<BookingHold> placeHold(@RequestBody HoldRequestBody body) {
+    var stay = validate("hold", () -> buildHold(body));
+    try {
+      var hold = bookingService.placeHold(stay.getProperty(), stay.getDates());
+      return ResponseEntity.status(HttpStatus.CREATED).body(BookingHold.builder()
+        .id(hold.id())
+        .property(hold.property())
+        .checkIn(stay.getCheckIn())
+        .checkOut(stay.getCheckOut())
+        .expiresAt(hold.expiresAt())
+        .build());
+    } catch (Exception e) {
+      throw rejected("hold", "Unable to place hold", e);
+    }
+  }
+
+  @DeleteMapping(value = "/holds/{id}")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void releaseHold(@PathVariable String id) {
+    if (!bookingService.releaseHold(id)) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Hold not found or expired");
+    }
+  }
+
+  private Booking validate(String operation, Supplier<Booking> builder) {
+    try {
+      return bookingMetrics.time(operation, BookingMetrics.VALIDATE, builder);
+    } catch (ResponseStatusException e) {
+      bookingMetrics.reject(operation, BookingMetrics.INVALID);
+      throw e;
+    }
+  }
+
+  private ResponseStatusException rejected(String operation, String reason, Exception e) {
+    return rejected(operation, reason, e, null);
+  }
+
+  private ResponseStatusException rejected(String operation, String reason, Exception e, Long expectedVersion) {
+    bookingMetrics.reject(operation, e);
+    // only an If-Match version is a precondition; without one a concurrent writer is an ordinary conflict
+    if (expectedVersion != null && (e instanceof BookingVersionMismatchException || e instanceof OptimisticLockingFailureException)) {
+      return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, reason, e);
+    }
+    return new ResponseStatusException(HttpStatus.BAD_REQUEST, reason, e);
+  }
+
+  private static String eTag(BookingEntity bookingEntity) {
+    return "\"" + bookingEntity.getVersion() + "\"";
+  }
+
+  private static Long expectedVersion(String ifMatch) {
+    if (ifMatch == null || ifMatch.trim().equals("*")) {
+      return null;
+    }
+    try {
+      return Long.valueOf(ifMatch.trim().replaceFirst("^W/", "").replace("\"", ""));
+    } catch (NumberFormatException e) {
+      return -1L; // matches no version
     }
   }
 
-  private BookingRange buildBookingRange(String from, String to) {
+  private static boolean matchesETag(String header, String eTag) {
+    return header != null && Arrays.stream(header.split(",")).map(String::trim).anyMatch(o -> o.equals("*") || o.equals(eTag));
+  }
+
+  BookingRange buildBookingRange(String from, String to, Integer property) {
     try {
-      var zoneId = ZoneId.of("Atlantic/Bermuda");
-      var now = LocalDate.now(zoneId);
-      var t0 = now.plusDays(1);
-      var t1 = now.plusMonths(1);
-      var fromDate = from == null || from.isBlank() ? t0 : LocalDate.parse(from, DateTimeFormatter.ISO_LOCAL_DATE);
-      var toDate = to == null || to.isBlank() ? t1 : LocalDate.parse(to, DateTimeFormatter.ISO_LOCAL_DATE);
-      if (fromDate.isBefore(t0)) {
+      var t0 = bookingWindow.getFrom();
+      var t1 = bookingWindow.getTo();
+      var fromDate = from == null || from.isBlank() ? t0 : bookingWindow.parse(from);
+      var toDate = to == null || to.isBlank() ? t1 : bookingWindow.parse(to);
+      if (fromDate < t0) {
         throw new IllegalArgumentException("From-date must be >= today + 1 day");
       }
-      if (fromDate.isAfter(t1)) {
+      if (fromDate > t1) {
         throw new IllegalArgumentException("From-date must be <= today + 1 month");
       }
-      if (fromDate.isAfter(toDate)) {
+      if (fromDate > toDate) {
         throw new IllegalArgumentException("To-date required to be after from-date");
       }
-      if (toDate.isAfter(t1)) {
+      if (toDate > t1) {
         throw new IllegalArgumentException("To-date must be <= today + 1 month");
       }
-      if (fromDate.isEqual(toDate)) {
-        toDate = toDate.plusDays(1);
+      if (fromDate == toDate) {
+        toDate++;
       }
       return BookingRange.builder()
-        .dates(fromDate.datesUntil(toDate).map(String::valueOf).toList())
-        .from(fromDate.toString())
-        .to(toDate.toString())
+        .property(property(property))
+        .from(fromDate)
+        .to(toDate)
         .build();
     } catch (Exception e) {
       throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad parameters", e);
     }
   }
 
-  private Booking buildBooking(BookingRequestBody bookingRequestBody) {
+  Booking buildBooking(BookingRequestBody bookingRequestBody) {
     try {
-      var checkIn = LocalDate.parse(bookingRequestBody.getCheckIn());
-      var checkOut = LocalDate.parse(bookingRequestBody.getCheckOut());
-      if (!checkOut.isAfter(checkIn)) {
-        throw new IllegalArgumentException("Check-in needs to be before check-out");
-      }
-      var dates = checkIn.datesUntil(checkOut).map(LocalDate::toString).toList();
-      if (dates.size() > 3 || dates.size() < 1) {
-        throw new IllegalArgumentException("Stay needs to be between 1 up to 3 days");
-      }
+      var stay = buildStay(bookingRequestBody.getProperty(), bookingRequestBody.getCheckIn(), bookingRequestBody.getCheckOut());
       if (bookingRequestBody.getFullName().isBlank()) {
         throw new IllegalArgumentException("Full name required");
       }
       if (bookingRequestBody.getEmail().isBlank()) {
         throw new IllegalArgumentException("Email required");
       }
-      return Booking.builder()
-        .dates(dates)
-        .checkIn(checkIn.toString())
-        .checkOut(checkOut.toString())
+      return stay
         .email(bookingRequestBody.getEmail())
         .fullName(bookingRequestBody.getFullName())
+        .hold(bookingRequestBody.getHold() == null || bookingRequestBody.getHold().isBlank() ? null : bookingRequestBody.getHold())
         .build();
     } catch (Exception e) {
       throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad parameters", e);
     }
   }
 
+  Booking buildHold(HoldRequestBody holdRequestBody) {
+    try {
+      return buildStay(holdRequestBody.getProperty(), holdRequestBody.getCheckIn(), holdRequestBody.getCheckOut()).build();
+    } catch (Exception e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad parameters", e);
+    }
+  }
+
+  private Booking.BookingBuilder buildStay(Integer property, String checkInDate, String checkOutDate) {
+    var checkIn = bookingWindow.parse(checkInDate);
+    var checkOut = bookingWindow.parse(checkOutDate);
+    if (checkOut <= checkIn) {
+      throw new IllegalArgumentException("Check-in needs to be before check-out");
+    }
+    if (checkIn < bookingWindow.getFrom() || checkIn > bookingWindow.getTo()) {
+      throw new IllegalArgumentException("Check-in must be between today + 1 day and today + 1 month");
+    }
+    var dates = IntStream.range(checkIn, checkOut).boxed().toList();
+    if (dates.size() > 3 || dates.size() < 1) {
+      throw new IllegalArgumentException("Stay needs to be between 1 up to 3 days");
+    }
+    return Booking.builder()
+      .property(property(property))
+      .dates(dates)
+      .checkIn(checkIn)
+      .checkOut(checkOut);
+  }
+
+  private static AvailabilityFormat availabilityFormat(String format) {
+    try {
+      return format == null || format.isBlank() ? AvailabilityFormat.DATES : AvailabilityFormat.valueOf(format.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad parameters", e);
+    }
+  }
+
+  private int property(Integer property) {
+    if (property == null) {
+      return AvailabilityIndex.DEFAULT_PROPERTY;
+    }
+    if (!availabilityIndex.hasProperty(property)) {
+      throw new IllegalArgumentException("Unknown property");
+    }
+    return property;
+  }
+
   @DeleteMapping(value = "/bookings/{id}")
   @ResponseStatus(HttpStatus.NO_CONTENT)
-  public void deleteBooking(@PathVariable String id) {
+  public void deleteBooking(@PathVariable String id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     try {
-      bookingService.deleteBooking(id);
+      bookingService.deleteBooking(id, expectedVersion(ifMatch));
     } catch (Exception e) {
-      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unable to delete booking", e);
+      throw rejected("delete", "Unable to delete booking", e, expectedVersion(ifMatch));
     }
   }
 
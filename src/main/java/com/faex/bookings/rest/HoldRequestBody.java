@@ -0,0 +1,12 @@
+package com.faex.bookings.rest;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class HoldRequestBody {
+  private Integer property;
+  private String checkIn;
+  private String checkOut;
+}
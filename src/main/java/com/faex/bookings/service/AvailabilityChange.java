@@ -0,0 +1,7 @@
+package com.faex.bookings.service;
+
+public record AvailabilityChange(long version, int date, int remaining) {
+  public boolean available() {
+    return remaining > 0;
+  }
+}
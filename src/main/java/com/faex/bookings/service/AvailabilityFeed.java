@@ -0,0 +1,165 @@
+package com.faex.bookings.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Fans committed availability transitions out to subscribers; a slow subscriber only ever holds the latest change per date
+@Component
+public class AvailabilityFeed {
+
+  public static final String SNAPSHOT = "snapshot", CHANGES = "changes", HEARTBEAT = "heartbeat";
+
+  public record Event(String type, long version, List<AvailabilityChange> changes) {
+  }
+
+  public interface Sink {
+    void send(Event event) throws Exception;
+  }
+
+  private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+  private final Deque<AvailabilityChange> history = new ArrayDeque<>();
+  private final int historySize;
+  private final ExecutorService executor;
+  private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(daemon("availability-feed-heartbeat"));
+  private long version, floorVersion;
+
+  public AvailabilityFeed(@Value("${bookings.feed.threads:4}") int threads,
+                          @Value("${bookings.feed.history:4096}") int historySize,
+                          @Value("${bookings.feed.heartbeat-seconds:30}") long heartbeatSeconds) {
+    this.historySize = historySize;
+    this.executor = Executors.newFixedThreadPool(threads, daemon("availability-feed"));
+    heartbeats.scheduleAtFixedRate(() -> subscriptions.forEach(Subscription::heartbeat), heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    heartbeats.shutdownNow();
+    executor.shutdownNow();
+  }
+
+  public synchronized Subscription subscribe(Long since, Supplier<List<AvailabilityChange>> snapshot, Sink sink) {
+    var subscription = new Subscription(sink);
+    if (since != null && since >= floorVersion && since <= version) {
+      subscription.offer(CHANGES, version, history.stream().filter(change -> change.version() > since).toList());
+    } else {
+      subscription.offer(SNAPSHOT, version, snapshot.get());
+    }
+    subscriptions.add(subscription);
+    return subscription;
+  }
+
+  public int getSubscriberCount() {
+    return subscriptions.size();
+  }
+
+  synchronized void publish(long version, List<AvailabilityChange> changes) {
+    this.version = version;
+    for (var change : changes) {
+      if (history.size() == historySize) {
+        floorVersion = history.removeFirst().version();
+      }
+      history.addLast(change);
+    }
+    if (!changes.isEmpty()) {
+      subscriptions.forEach(subscription -> subscription.offer(CHANGES, version, changes));
+    }
+  }
+
+  synchronized void reset(long version) {
+    this.version = version;
+    this.floorVersion = version;
+    history.clear();
+  }
+
+  public class Subscription {
+    private final Sink sink;
+    private final Map<Integer, AvailabilityChange> pending = new LinkedHashMap<>();
+    private String pendingType;
+    private long pendingVersion;
+    private boolean scheduled, cancelled;
+
+    private Subscription(Sink sink) {
+      this.sink = sink;
+    }
+
+    public void cancel() {
+      synchronized (this) {
+        cancelled = true;
+        pending.clear();
+      }
+      subscriptions.remove(this);
+    }
+
+    private void offer(String type, long version, List<AvailabilityChange> changes) {
+      synchronized (this) {
+        if (cancelled || changes.isEmpty() && !type.equals(SNAPSHOT)) {
+          return;
+        }
+        // bounded by the number of distinct dates: newer changes replace older ones for the same date
+        changes.forEach(change -> pending.put(change.date(), change));
+        pendingType = SNAPSHOT.equals(pendingType) ? SNAPSHOT : type;
+        pendingVersion = version;
+        if (scheduled) {
+          return;
+        }
+        scheduled = true;
+      }
+      executor.execute(this::drain);
+    }
+
+    private void heartbeat() {
+      synchronized (this) {
+        if (cancelled || scheduled) {
+          return;
+        }
+        pendingType = HEARTBEAT;
+        scheduled = true;
+      }
+      executor.execute(this::drain);
+    }
+
+    private void drain() {
+      while (true) {
+        Event event;
+        synchronized (this) {
+          if (cancelled || pendingType == null) {
+            scheduled = false;
+            return;
+          }
+          event = new Event(pendingType, pendingVersion, List.copyOf(pending.values()));
+          pending.clear();
+          pendingType = null;
+        }
+        try {
+          sink.send(event);
+        } catch (Exception e) {
+          cancel();
+          return;
+        }
+      }
+    }
+  }
+
+  private static ThreadFactory daemon(String name) {
+    return runnable -> {
+      var thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
@@ -0,0 +1,206 @@
+package com.faex.bookings.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+// Committed booked counts keyed by property and epoch-day, loaded at startup and changed only after commits; each configured property is its own shard
+@Slf4j
+@Component
+public class AvailabilityIndex {
+
+  public static final int DEFAULT_PROPERTY = 0;
+
+  // the counters, versions and lock of one property, so bookings of different properties never contend
+  private static final class Shard {
+    private final DayCounters booked = new DayCounters();
+    // seeded from the clock so versions keep increasing across restarts
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis() * 1000);
+    // version of the last change per ring slot, so readers can tell whether a range moved since they looked
+    private final AtomicLongArray changedAt = new AtomicLongArray(DayCounters.WINDOW_DAYS);
+    private volatile long clearedAt;
+  }
+
+  // one shard per configured property, fixed at startup so client input never creates one
+  private final Map<Integer, Shard> shards;
+  private final AvailabilitySnapshot availabilitySnapshot;
+  private final AvailabilityFeed availabilityFeed;
+  private final int capacity;
+  private long snapshotStamp;
+  // dates deletions between discarding the snapshot and completing, during which the counts must not be snapshotted
+  private int snapshotsSuspended;
+
+  public AvailabilityIndex(AvailabilitySnapshot availabilitySnapshot, AvailabilityFeed availabilityFeed, @Value("${bookings.capacity:1}") int capacity,
+                           @Value("${bookings.properties:0}") Set<Integer> properties) {
+    this.shards = Stream.concat(Stream.of(DEFAULT_PROPERTY), properties.stream()).distinct()
+      .collect(Collectors.toUnmodifiableMap(property -> property, property -> new Shard()));
+    this.availabilitySnapshot = availabilitySnapshot;
+    this.availabilityFeed = availabilityFeed;
+    this.capacity = capacity;
+  }
+
+  @PostConstruct
+  public synchronized void load() {
+    shards.values().forEach(shard -> shard.booked.clear());
+    availabilitySnapshot.load().forEach((property, dates) -> {
+      var shard = shards.get(property);
+      if (shard == null) {
+        log.warn("Ignoring booked dates of property {}, which is not configured", property);
+        return;
+      }
+      dates.forEach((date, count) -> shard.booked.add(date, count, Integer.MAX_VALUE));
+    });
+    shards.values().forEach(shard -> shard.clearedAt = shard.version.incrementAndGet());
+    snapshotStamp = stamp();
+    availabilityFeed.reset(shards.get(DEFAULT_PROPERTY).clearedAt);
+  }
+
+  @PreDestroy
+  @Scheduled(fixedDelayString = "${bookings.snapshot.interval-ms:60000}", initialDelayString = "${bookings.snapshot.interval-ms:60000}")
+  public void writeSnapshot() {
+    if (!availabilitySnapshot.isEnabled()) {
+      return;
+    }
+    var counts = new HashMap<Integer, Map<Integer, Integer>>();
+    // written under the lock as well, so a deletion cannot discard the file between collecting the counts and writing them
+    synchronized (this) {
+      var stamp = stamp();
+      if (stamp == snapshotStamp || snapshotsSuspended > 0) {
+        return;
+      }
+      var today = (int) DayCounters.today();
+      shards.forEach((property, shard) -> {
+        synchronized (shard) {
+          for (int date = today; date < today + DayCounters.WINDOW_DAYS; date++) {
+            if (shard.booked.get(date) > 0) {
+              counts.computeIfAbsent(property, key -> new HashMap<>()).put(date, shard.booked.get(date));
+            }
+          }
+        }
+      });
+      availabilitySnapshot.write(stamp, counts);
+      snapshotStamp = stamp;
+    }
+  }
+
+  // called before the dates are deleted, so a crash before the next snapshot falls back to a table scan;
+  // snapshots stay off until resumeSnapshots, so the counts from before the deletion are never written again
+  public synchronized void discardSnapshot() {
+    snapshotsSuspended++;
+    availabilitySnapshot.invalidate();
+  }
+
+  // called once the deletion has completed, after clear() when it committed
+  public synchronized void resumeSnapshots() {
+    snapshotsSuspended--;
+  }
+
+  public boolean hasProperty(int property) {
+    return shards.containsKey(property);
+  }
+
+  public long getVersion(int property) {
+    var shard = shards.get(property);
+    return shard == null ? 0 : shard.version.get();
+  }
+
+  public int getRemaining(int property, long epochDay) {
+    var shard = shards.get(property);
+    return shard == null ? capacity : Math.max(capacity - shard.booked.get(epochDay), 0);
+  }
+
+  public boolean isUnchangedSince(int property, long version, int from, int to) {
+    var shard = shards.get(property);
+    if (shard == null) {
+      return true;
+    }
+    if (shard.clearedAt > version) {
+      return false;
+    }
+    for (int date = from; date < to; date++) {
+      if (shard.changedAt.get(Math.floorMod(date, DayCounters.WINDOW_DAYS)) > version) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public long getBookedNights() {
+    var today = DayCounters.today();
+    return shards.values().stream().mapToLong(shard -> LongStream.range(today, today + DayCounters.WINDOW_DAYS).map(shard.booked::get).sum()).sum();
+  }
+
+  public List<AvailabilityChange> snapshot(int property, int from, int to) {
+    var version = getVersion(property);
+    return IntStream.range(from, to).mapToObj(date -> new AvailabilityChange(version, date, getRemaining(property, date))).toList();
+  }
+
+  public void update(int property, Collection<Integer> releasedDates, Collection<Integer> bookedDates) {
+    var shard = shard(property);
+    synchronized (shard) {
+      var dates = new TreeSet<>(releasedDates);
+      dates.addAll(bookedDates);
+      var before = dates.stream().mapToInt(date -> getRemaining(property, date)).toArray();
+      releasedDates.forEach(date -> shard.booked.add(date, -1, Integer.MAX_VALUE));
+      bookedDates.forEach(date -> shard.booked.add(date, 1, Integer.MAX_VALUE));
+      var version = shard.version.incrementAndGet();
+      var changes = new ArrayList<AvailabilityChange>();
+      var i = 0;
+      for (var date : dates) {
+        shard.changedAt.set(Math.floorMod(date, DayCounters.WINDOW_DAYS), version);
+        var remaining = getRemaining(property, date);
+        if ((before[i++] > 0) != (remaining > 0)) {
+          changes.add(new AvailabilityChange(version, date, remaining));
+        }
+      }
+      if (property == DEFAULT_PROPERTY) {
+        availabilityFeed.publish(version, changes);
+      }
+    }
+  }
+
+  public void clear() {
+    var today = (int) DayCounters.today();
+    shards.forEach((property, shard) -> {
+      synchronized (shard) {
+        var unavailable = IntStream.range(today, today + DayCounters.WINDOW_DAYS).filter(date -> getRemaining(property, date) == 0).toArray();
+        shard.booked.clear();
+        var version = shard.version.incrementAndGet();
+        shard.clearedAt = version;
+        if (property == DEFAULT_PROPERTY) {
+          availabilityFeed.publish(version, IntStream.of(unavailable).mapToObj(date -> new AvailabilityChange(version, date, getRemaining(property, date))).toList());
+        }
+      }
+    });
+  }
+
+  private Shard shard(int property) {
+    var shard = shards.get(property);
+    if (shard == null) {
+      throw new IllegalArgumentException("Unknown property " + property);
+    }
+    return shard;
+  }
+
+  // grows with every change of any shard, so an unchanged stamp means nothing to snapshot
+  private long stamp() {
+    return shards.values().stream().mapToLong(shard -> shard.version.get()).sum();
+  }
+}
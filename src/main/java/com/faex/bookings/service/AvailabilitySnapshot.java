@@ -0,0 +1,132 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.orm.BookingDateEntity;
+import com.faex.bookings.orm.BookingDateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Committed booked counts in a memory-mapped file: a versioned header followed by fixed-width (property, epoch-day, booked) records
+@Slf4j
+@Component
+public class AvailabilitySnapshot {
+
+  private static final int MAGIC = 0x424b4e47, FORMAT = 2;
+  // magic, format, index version, taken-at millis, record count
+  private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4, RECORD_BYTES = 4 + 4 + 4;
+
+  private final BookingDateRepository dateRepository;
+  private final Path path;
+  private final boolean restorable;
+  private final long replayMarginMillis;
+
+  public AvailabilitySnapshot(BookingDateRepository dateRepository,
+                              @Value("${bookings.snapshot.path:}") String path,
+                              @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto,
+                              @Value("${bookings.snapshot.replay-margin-seconds:60}") long replayMarginSeconds) {
+    this.dateRepository = dateRepository;
+    this.path = path.isBlank() ? null : Path.of(path);
+    // a schema created at startup is empty, whatever an older snapshot says
+    this.restorable = this.path != null && !Set.of("create", "create-drop").contains(ddlAuto);
+    this.replayMarginMillis = replayMarginSeconds * 1000;
+  }
+
+  public boolean isEnabled() {
+    return path != null;
+  }
+
+  // booked counts by property, then by epoch-day
+  public Map<Integer, Map<Integer, Integer>> load() {
+    var start = System.nanoTime();
+    var booked = restorable ? restore() : null;
+    var source = "snapshot";
+    if (booked == null) {
+      booked = new HashMap<>();
+      for (var date : dateRepository.findAll()) {
+        put(booked, date);
+      }
+      source = "booking_date scan";
+    }
+    log.info("Loaded booked counts of {} dates from {} in {} ms", booked.values().stream().mapToInt(Map::size).sum(), source,
+      (System.nanoTime() - start) / 1_000_000.0);
+    return booked;
+  }
+
+  void write(long version, Map<Integer, Map<Integer, Integer>> booked) {
+    var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    var count = booked.values().stream().mapToInt(Map::size).sum();
+    try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+      StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) RECORD_BYTES * count);
+      buffer.putInt(MAGIC).putInt(FORMAT).putLong(version).putLong(System.currentTimeMillis()).putInt(count);
+      booked.forEach((property, dates) -> dates.forEach((date, booking) -> buffer.putInt(property).putInt(date).putInt(booking)));
+      buffer.force();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    try {
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  void invalidate() {
+    if (path == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Map<Integer, Map<Integer, Integer>> restore() {
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES) {
+        return null;
+      }
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+        return null;
+      }
+      buffer.getLong(); // index version, informational
+      var takenAt = buffer.getLong();
+      var count = buffer.getInt();
+      if (channel.size() != HEADER_BYTES + (long) RECORD_BYTES * count) {
+        return null;
+      }
+      var booked = new HashMap<Integer, Map<Integer, Integer>>();
+      for (int i = 0; i < count; i++) {
+        booked.computeIfAbsent(buffer.getInt(), property -> new HashMap<>()).put(buffer.getInt(), buffer.getInt());
+      }
+      // rows carry absolute counts, so replaying a few already in the snapshot is harmless
+      for (var date : dateRepository.findAllByUpdatedGreaterThanEqual(Instant.ofEpochMilli(takenAt - replayMarginMillis))) {
+        put(booked, date);
+      }
+      return booked;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static void put(Map<Integer, Map<Integer, Integer>> booked, BookingDateEntity date) {
+    booked.computeIfAbsent(date.getProperty(), property -> new HashMap<>()).put(date.getDate(), date.getBooked());
+  }
+}
@@ -8,6 +8,10 @@ import java.util.List;
 @Data
 @Builder
 public class Booking {
-  private List<String> dates;
-  private String checkIn, checkOut, email, fullName;
+  private int property;
+  private List<Integer> dates;
+  private int checkIn, checkOut;
+  private String email, fullName;
+  // a hold on exactly these dates that the booking takes over instead of claiming them
+  private String hold;
 }
@@ -0,0 +1,130 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.orm.ArchivedBookingEntity;
+import com.faex.bookings.orm.ArchivedBookingRepository;
+import com.faex.bookings.orm.BookingDateRepository;
+import com.faex.bookings.orm.BookingEntity;
+import com.faex.bookings.orm.BookingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Moves cancelled and checked-out bookings to booking_archive and purges past booking_date rows, in bounded batches paced apart
+@Slf4j
+@Component
+public class BookingArchiver {
+
+  public static final String CANCELLED = "cancelled", CHECKED_OUT = "checked-out", PAST_DATES = "past-dates";
+
+  private final BookingRepository bookingRepository;
+  private final ArchivedBookingRepository archivedBookingRepository;
+  private final BookingDateRepository dateRepository;
+  private final BookingMetrics bookingMetrics;
+  private final BookingJournal bookingJournal;
+  private final BookingReplica bookingReplica;
+  private final TransactionTemplate transactionTemplate;
+  private final int batchSize, maxBatches;
+  private final long pauseMillis;
+
+  public BookingArchiver(BookingRepository bookingRepository, ArchivedBookingRepository archivedBookingRepository,
+                         BookingDateRepository dateRepository, BookingMetrics bookingMetrics, BookingJournal bookingJournal,
+                         BookingReplica bookingReplica, PlatformTransactionManager transactionManager,
+                         @Value("${bookings.archiver.batch-size:500}") int batchSize,
+                         @Value("${bookings.archiver.max-batches:100}") int maxBatches,
+                         @Value("${bookings.archiver.pause-ms:100}") long pauseMillis) {
+    this.bookingRepository = bookingRepository;
+    this.archivedBookingRepository = archivedBookingRepository;
+    this.dateRepository = dateRepository;
+    this.bookingMetrics = bookingMetrics;
+    this.bookingJournal = bookingJournal;
+    this.bookingReplica = bookingReplica;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.batchSize = batchSize;
+    this.maxBatches = maxBatches;
+    this.pauseMillis = pauseMillis;
+  }
+
+  @Scheduled(fixedDelayString = "${bookings.archiver.interval-ms:3600000}", initialDelayString = "${bookings.archiver.interval-ms:3600000}")
+  public void archive() {
+    var today = (int) DayCounters.today();
+    var cancelled = drain(CANCELLED, page -> bookingRepository.findAllByStatusOrderById(BookingEntity.Status.DELETED, page));
+    var checkedOut = drain(CHECKED_OUT, page -> bookingRepository.findAllByCheckOutLessThanOrderByCheckOut(today, page));
+    var purged = bookingMetrics.archiveBatch(PAST_DATES, () -> transactionTemplate.execute(status -> dateRepository.deleteAllByDateLessThan(today)));
+    bookingMetrics.purged(purged);
+    log.info("Archived {} cancelled and {} checked-out bookings, purged {} past dates", cancelled, checkedOut, purged);
+  }
+
+  // at most max-batches per run, so a large backlog drains over several runs
+  private int drain(String reason, Function<Pageable, List<BookingEntity>> nextBatch) {
+    var archived = 0;
+    for (int i = 0; i < maxBatches; i++) {
+      List<BookingEntity> bookingEntities;
+      try {
+        // each batch is timed on its own, so the pauses between them stay out of the timer
+        bookingEntities = bookingMetrics.archiveBatch(reason, () -> transactionTemplate.execute(status -> move(nextBatch.apply(PageRequest.of(0, batchSize)))));
+      } catch (OptimisticLockingFailureException e) {
+        log.info("Stopped archiving {} bookings at one modified concurrently, retrying next run", reason);
+        break;
+      }
+      bookingEntities.forEach(this::journal);
+      var moved = bookingEntities.size();
+      archived += moved;
+      bookingMetrics.archived(reason, moved);
+      if (moved < batchSize || !pause()) {
+        break;
+      }
+    }
+    return archived;
+  }
+
+  private void journal(BookingEntity bookingEntity) {
+    var appended = bookingJournal.append(BookingJournal.Type.ARCHIVED, bookingEntity);
+    appended.whenComplete((sequence, e) -> {
+      if (e != null) {
+        log.error("Failed to journal archiving of booking {}", bookingEntity.getId(), e);
+        bookingMetrics.journalFailed(BookingJournal.Type.ARCHIVED);
+      }
+    });
+    bookingReplica.written(bookingEntity, appended);
+  }
+
+  private List<BookingEntity> move(List<BookingEntity> bookingEntities) {
+    var archivedTime = System.currentTimeMillis();
+    archivedBookingRepository.saveAll(bookingEntities.stream().map(bookingEntity -> ArchivedBookingEntity.builder()
+      .id(bookingEntity.getId())
+      .version(bookingEntity.getVersion())
+      .property(bookingEntity.getProperty())
+      .createdTime(bookingEntity.getCreatedTime())
+      .updatedTime(bookingEntity.getUpdatedTime())
+      .deletedTime(bookingEntity.getDeletedTime())
+      .archivedTime(archivedTime)
+      .email(bookingEntity.getEmail())
+      .fullName(bookingEntity.getFullName())
+      .checkIn(bookingEntity.getCheckIn())
+      .checkOut(bookingEntity.getCheckOut())
+      .status(bookingEntity.getStatus())
+      .build()).toList());
+    // versioned deletes, so a booking changed since it was read rolls the batch back
+    bookingRepository.deleteAll(bookingEntities);
+    return bookingEntities;
+  }
+
+  private boolean pause() {
+    try {
+      Thread.sleep(pauseMillis);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
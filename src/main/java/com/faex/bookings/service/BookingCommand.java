@@ -0,0 +1,7 @@
+package com.faex.bookings.service;
+
+import java.util.function.Supplier;
+
+// A booking mutation split into its in-memory decision, its database write and the undo of that decision
+record BookingCommand<T>(Runnable decide, Supplier<T> write, Runnable release) {
+}
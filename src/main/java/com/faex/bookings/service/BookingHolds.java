@@ -0,0 +1,138 @@
+package com.faex.bookings.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Claimed dates awaiting checkout, released by a timing wheel when their TTL runs out unless taken over by a booking first
+@Component
+public class BookingHolds {
+
+  public static final String PLACED = "placed", CONVERTED = "converted", RELEASED = "released", EXPIRED = "expired";
+
+  public record Hold(String id, int property, List<Integer> dates, long expiresAt) {
+  }
+
+  // a taken hold is off the wheel while the booking converting it commits
+  private record Entry(Hold hold, TimingWheel.Timeout<String> timeout, boolean taken) {
+  }
+
+  private final DateClaims dateClaims;
+  private final BookingMetrics bookingMetrics;
+  private final long ttlMillis;
+  private final TimingWheel<String> wheel;
+  private final Map<String, Entry> holds = new HashMap<>();
+
+  public BookingHolds(DateClaims dateClaims, BookingMetrics bookingMetrics,
+                      @Value("${bookings.holds.ttl-ms:120000}") long ttlMillis,
+                      @Value("${bookings.holds.tick-ms:100}") long tickMillis) {
+    this.dateClaims = dateClaims;
+    this.bookingMetrics = bookingMetrics;
+    this.ttlMillis = ttlMillis;
+    this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+    if (ttlMillis > wheel.getHorizonMillis()) {
+      throw new IllegalArgumentException("Hold TTL must be <= " + wheel.getHorizonMillis() + " ms at a " + tickMillis + " ms tick");
+    }
+  }
+
+  // the dates must already be claimed; the hold owns the claims from here on
+  public synchronized Hold add(int property, List<Integer> dates) {
+    var hold = new Hold(UUID.randomUUID().toString(), property, List.copyOf(dates), System.currentTimeMillis() + ttlMillis);
+    holds.put(hold.id(), new Entry(hold, wheel.schedule(hold.id(), hold.expiresAt()), false));
+    bookingMetrics.hold(PLACED);
+    return hold;
+  }
+
+  // lends the hold's claims to a booking of exactly the held dates until it commits (converted) or fails (restore)
+  public synchronized Hold take(String id, int property, List<Integer> dates) {
+    var entry = holds.get(id);
+    if (entry == null) {
+      throw new IllegalArgumentException("Hold not found or expired");
+    }
+    if (entry.taken()) {
+      throw new IllegalArgumentException("Hold is already being converted");
+    }
+    if (entry.hold().property() != property || !entry.hold().dates().equals(dates)) {
+      throw new IllegalArgumentException("Booking doesn't match the held property and dates");
+    }
+    wheel.cancel(entry.timeout());
+    holds.put(id, new Entry(entry.hold(), null, true));
+    return entry.hold();
+  }
+
+  // the booking committed and owns the claims now
+  public synchronized void converted(String id) {
+    if (holds.remove(id) != null) {
+      bookingMetrics.hold(CONVERTED);
+    }
+  }
+
+  // the booking failed: the hold gets its claims back and runs until its original expiry, or expires now if that has passed
+  public void restore(String id) {
+    Hold expired;
+    synchronized (this) {
+      var entry = holds.get(id);
+      if (entry == null || !entry.taken()) {
+        return;
+      }
+      var hold = entry.hold();
+      if (hold.expiresAt() > System.currentTimeMillis()) {
+        holds.put(id, new Entry(hold, wheel.schedule(id, hold.expiresAt()), false));
+        return;
+      }
+      holds.remove(id);
+      expired = hold;
+    }
+    dateClaims.releaseAll(expired.property(), expired.dates());
+    bookingMetrics.hold(EXPIRED);
+  }
+
+  public boolean release(String id) {
+    Entry entry;
+    synchronized (this) {
+      entry = holds.get(id);
+      if (entry == null || entry.taken()) {
+        return false;
+      }
+      remove(entry);
+    }
+    dateClaims.releaseAll(entry.hold().property(), entry.hold().dates());
+    bookingMetrics.hold(RELEASED);
+    return true;
+  }
+
+  // forgets every hold without releasing, for when the claims themselves are cleared
+  public synchronized void clear() {
+    holds.values().stream().filter(entry -> entry.timeout() != null).forEach(entry -> wheel.cancel(entry.timeout()));
+    holds.clear();
+  }
+
+  public synchronized int size() {
+    return holds.size();
+  }
+
+  @Scheduled(fixedRateString = "${bookings.holds.tick-ms:100}")
+  public void expire() {
+    var expired = new ArrayList<Hold>();
+    synchronized (this) {
+      wheel.advance(System.currentTimeMillis(), id -> expired.add(holds.remove(id).hold()));
+    }
+    expired.forEach(hold -> {
+      dateClaims.releaseAll(hold.property(), hold.dates());
+      bookingMetrics.hold(EXPIRED);
+    });
+  }
+
+  private void remove(Entry entry) {
+    holds.remove(entry.hold().id());
+    if (entry.timeout() != null) {
+      wheel.cancel(entry.timeout());
+    }
+  }
+}
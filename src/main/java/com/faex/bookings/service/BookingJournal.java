@@ -0,0 +1,340 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.orm.BookingEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only journal of booking events in numbered segment files; one writer thread writes queued events as a group and fsyncs once per group
+@Component
+public class BookingJournal {
+
+  public enum Type { CREATED, UPDATED, CANCELLED, ARCHIVED }
+
+  public record Event(long sequence, Type type, long bookingId, long version, int property, int checkIn, int checkOut, long time, String email, String fullName) {
+  }
+
+  // where a tailing reader stopped: the first sequence naming its segment and the byte offset after the last event it read
+  public record Position(long segment, long offset) {
+  }
+
+  private record Pending(Event event, CompletableFuture<Long> appended) {
+  }
+
+  private static final String PREFIX = "journal-", SUFFIX = ".log";
+
+  private final Path directory;
+  private final long segmentBytes;
+  private final int groupSize;
+  private final BlockingQueue<Pending> queue;
+  private final Thread writer;
+  private FileChannel segment;
+  private long segmentSize, nextSequence = 1;
+  private volatile boolean closed;
+
+  public BookingJournal(@Value("${bookings.journal.path:}") String path,
+                        @Value("${bookings.journal.segment-bytes:67108864}") long segmentBytes,
+                        @Value("${bookings.journal.group-size:256}") int groupSize) {
+    this.directory = path.isBlank() ? null : Path.of(path);
+    this.segmentBytes = segmentBytes;
+    this.groupSize = groupSize;
+    this.queue = new LinkedBlockingQueue<>(64 * groupSize);
+    if (directory == null) {
+      this.writer = null;
+      return;
+    }
+    try {
+      Files.createDirectories(directory);
+      recover();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.writer = new Thread(this::write, "booking-journal");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  public boolean isEnabled() {
+    return directory != null;
+  }
+
+  public long getNextSequence() {
+    synchronized (queue) {
+      return nextSequence;
+    }
+  }
+
+  public CompletableFuture<Long> append(Type type, BookingEntity bookingEntity) {
+    if (directory == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    var appended = new CompletableFuture<Long>();
+    try {
+      // sequences follow queue order, so the writer always appends them in order
+      synchronized (queue) {
+        if (closed) {
+          appended.completeExceptionally(new IllegalStateException("Booking journal is closed"));
+          return appended;
+        }
+        queue.put(new Pending(new Event(nextSequence++, type, bookingEntity.getId(), bookingEntity.getVersion(), bookingEntity.getProperty(), bookingEntity.getCheckIn(),
+          bookingEntity.getCheckOut(), System.currentTimeMillis(), bookingEntity.getEmail(), bookingEntity.getFullName()), appended));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      appended.completeExceptionally(e);
+    }
+    return appended;
+  }
+
+  public void replay(long fromSequence, Consumer<Event> consumer) {
+    if (directory == null) {
+      return;
+    }
+    var segments = segments();
+    for (int i = 0; i < segments.size(); i++) {
+      // a segment ends where the next one starts, so segments wholly before fromSequence are skipped unread
+      if (i + 1 < segments.size() && firstSequence(segments.get(i + 1)) <= fromSequence) {
+        continue;
+      }
+      var path = segments.get(i);
+      try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        Event event;
+        while ((event = decode(buffer)) != null) {
+          if (event.sequence() >= fromSequence) {
+            consumer.accept(event);
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  // the start of the segment holding fromSequence, to tail from
+  public Position position(long fromSequence) {
+    var position = new Position(0, 0);
+    if (directory != null) {
+      for (var path : segments()) {
+        if (firstSequence(path) <= fromSequence) {
+          position = new Position(firstSequence(path), 0);
+        }
+      }
+    }
+    return position;
+  }
+
+  // reads on from where the previous call stopped and returns where this one did; bytes once written are never rewritten,
+  // so only a record still being written ends the read of the newest segment, and it is read again next time
+  public Position tail(Position from, Consumer<Event> consumer) {
+    if (directory == null) {
+      return from;
+    }
+    var position = from;
+    for (var path : segments()) {
+      var segment = firstSequence(path);
+      if (segment < from.segment()) {
+        continue;
+      }
+      var offset = segment == from.segment() ? from.offset() : 0;
+      try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        var buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.max(channel.size() - offset, 0));
+        Event event;
+        while ((event = decode(buffer)) != null) {
+          consumer.accept(event);
+        }
+        position = new Position(segment, offset + buffer.position());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return position;
+  }
+
+  @PreDestroy
+  public void close() throws InterruptedException {
+    if (writer == null) {
+      return;
+    }
+    synchronized (queue) {
+      closed = true;
+    }
+    writer.join();
+  }
+
+  private void write() {
+    var group = new ArrayList<Pending>(groupSize);
+    while (!closed || !queue.isEmpty()) {
+      try {
+        var first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        group.add(first);
+        queue.drainTo(group, groupSize - 1);
+        write(group);
+        group.forEach(pending -> pending.appended().complete(pending.event().sequence()));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        group.forEach(pending -> pending.appended().completeExceptionally(e));
+      }
+      group.clear();
+    }
+    try {
+      if (segment != null) {
+        segment.close();
+      }
+    } catch (IOException ignored) {
+    }
+  }
+
+  private void write(List<Pending> group) throws IOException {
+    var records = group.stream().map(pending -> encode(pending.event())).toList();
+    var bytes = records.stream().mapToInt(ByteBuffer::remaining).sum();
+    if (segment == null || segmentSize > 0 && segmentSize + bytes > segmentBytes) {
+      roll(group.get(0).event().sequence());
+    }
+    var buffer = ByteBuffer.allocate(bytes);
+    records.forEach(buffer::put);
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        segmentSize += segment.write(buffer);
+      }
+      segment.force(false);
+    } catch (IOException | RuntimeException e) {
+      abandon();
+      throw e;
+    }
+  }
+
+  // a failed group ends its segment: the next group starts a new one, so a torn record is only ever followed by the next segment
+  // and readers that tailed part of the group never see those bytes rewritten
+  private void abandon() {
+    try {
+      segment.close();
+    } catch (IOException ignored) {
+    }
+    segment = null;
+  }
+
+  private void roll(long firstSequence) throws IOException {
+    if (segment != null) {
+      segment.close();
+    }
+    segment = FileChannel.open(directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX)),
+      StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    segmentSize = segment.size();
+  }
+
+  // continues after the last intact record of the newest segment, cutting off a torn tail
+  private void recover() throws IOException {
+    var segments = segments();
+    if (segments.isEmpty()) {
+      return;
+    }
+    var last = segments.get(segments.size() - 1);
+    nextSequence = firstSequence(last);
+    try (var channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      Event event;
+      while ((event = decode(buffer)) != null) {
+        nextSequence = event.sequence() + 1;
+      }
+      channel.truncate(buffer.position());
+    }
+    segment = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    segmentSize = segment.size();
+  }
+
+  private List<Path> segments() {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(path -> path.getFileName().toString().startsWith(PREFIX) && path.getFileName().toString().endsWith(SUFFIX))
+        .sorted()
+        .toList();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long firstSequence(Path segment) {
+    var name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+  }
+
+  // length, body, crc32 of body
+  private static ByteBuffer encode(Event event) {
+    var email = bytes(event.email());
+    var fullName = bytes(event.fullName());
+    var length = 8 + 1 + 8 + 8 + 4 + 4 + 4 + 8 + 4 + email.length + 4 + fullName.length;
+    var buffer = ByteBuffer.allocate(4 + length + 4);
+    buffer.putInt(length)
+      .putLong(event.sequence())
+      .put((byte) event.type().ordinal())
+      .putLong(event.bookingId())
+      .putLong(event.version())
+      .putInt(event.property())
+      .putInt(event.checkIn())
+      .putInt(event.checkOut())
+      .putLong(event.time())
+      .putInt(email.length).put(email)
+      .putInt(fullName.length).put(fullName);
+    var crc = new CRC32();
+    crc.update(buffer.array(), 4, length);
+    buffer.putInt((int) crc.getValue());
+    return buffer.flip();
+  }
+
+  // null at the end of the segment or at the first torn or corrupt record, leaving the position after the last intact one
+  private static Event decode(ByteBuffer buffer) {
+    var start = buffer.position();
+    if (buffer.remaining() < 4) {
+      return null;
+    }
+    var length = buffer.getInt();
+    if (length < 0 || buffer.remaining() < length + 4) {
+      buffer.position(start);
+      return null;
+    }
+    var body = buffer.slice(buffer.position(), length);
+    var crc = new CRC32();
+    crc.update(body.duplicate());
+    buffer.position(buffer.position() + length);
+    if (buffer.getInt() != (int) crc.getValue()) {
+      buffer.position(start);
+      return null;
+    }
+    return new Event(body.getLong(), Type.values()[body.get()], body.getLong(), body.getLong(), body.getInt(), body.getInt(), body.getInt(), body.getLong(),
+      string(body), string(body));
+  }
+
+  private static byte[] bytes(String value) {
+    return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String string(ByteBuffer buffer) {
+    var bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
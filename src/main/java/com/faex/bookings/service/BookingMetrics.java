@@ -0,0 +1,112 @@
+package com.faex.bookings.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Phase timers, rejection, archive batch timers and counters, read-routing, hold and journal failure counters and the booked-nights gauge of the booking lifecycle, exposed through actuator
+@Component
+public class BookingMetrics {
+
+  public static final String TOTAL = "total", VALIDATE = "validate", CLAIM = "claim", WRITE = "write";
+  public static final String CONFLICT = "conflict", INVALID = "invalid", ERROR = "error";
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+  private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+  private final Map<String, Counter> archived = new ConcurrentHashMap<>();
+  private final Map<String, Timer> archiveBatches = new ConcurrentHashMap<>();
+  private final Map<String, Counter> reads = new ConcurrentHashMap<>();
+  private final Map<String, Counter> holds = new ConcurrentHashMap<>();
+  private final Map<BookingJournal.Type, Counter> journalFailures = new ConcurrentHashMap<>();
+  private final Counter purged;
+
+  public BookingMetrics(MeterRegistry meterRegistry, AvailabilityIndex availabilityIndex) {
+    this.meterRegistry = meterRegistry;
+    Gauge.builder("bookings.nights.booked", availabilityIndex, AvailabilityIndex::getBookedNights)
+      .description("Committed booked nights in the availability window")
+      .register(meterRegistry);
+    this.purged = Counter.builder("bookings.dates.purged")
+      .description("Past booking_date rows removed by the archiver")
+      .register(meterRegistry);
+  }
+
+  public <T> T time(String operation, String phase, Supplier<T> supplier) {
+    return timer(operation, phase).record(supplier);
+  }
+
+  public void time(String operation, String phase, Runnable runnable) {
+    timer(operation, phase).record(runnable);
+  }
+
+  // only lost races count as conflicts; a busy or stopped writer, a closed journal or a database failure is an error
+  public void reject(String operation, Throwable e) {
+    var conflict = e instanceof DatesUnavailableException || e instanceof BookingVersionMismatchException || e instanceof ConcurrencyFailureException;
+    reject(operation, conflict ? CONFLICT : e instanceof IllegalArgumentException ? INVALID : ERROR);
+  }
+
+  public void reject(String operation, String reason) {
+    rejections.computeIfAbsent(operation + "/" + reason, key -> Counter.builder("bookings.rejections")
+      .description("Booking requests rejected, by cause")
+      .tag("operation", operation)
+      .tag("reason", reason)
+      .register(meterRegistry)).increment();
+  }
+
+  public void archived(String reason, int count) {
+    archived.computeIfAbsent(reason, key -> Counter.builder("bookings.archived")
+      .description("Bookings moved from booking_entity to booking_archive, by reason")
+      .tag("reason", reason)
+      .register(meterRegistry)).increment(count);
+  }
+
+  // kept apart from bookings.operation, whose percentiles describe requests rather than background batches
+  public <T> T archiveBatch(String reason, Supplier<T> batch) {
+    return archiveBatches.computeIfAbsent(reason, key -> Timer.builder("bookings.archive.batch")
+      .description("Time spent in each archiver batch transaction, by reason")
+      .tag("reason", reason)
+      .register(meterRegistry)).record(batch);
+  }
+
+  public void purged(int count) {
+    purged.increment(count);
+  }
+
+  public void read(String source) {
+    reads.computeIfAbsent(source, key -> Counter.builder("bookings.reads")
+      .description("Booking lookups, by the database that served them")
+      .tag("source", source)
+      .register(meterRegistry)).increment();
+  }
+
+  public void hold(String outcome) {
+    holds.computeIfAbsent(outcome, key -> Counter.builder("bookings.holds")
+      .description("Holds placed and how they ended, by outcome")
+      .tag("outcome", outcome)
+      .register(meterRegistry)).increment();
+  }
+
+  public void journalFailed(BookingJournal.Type type) {
+    journalFailures.computeIfAbsent(type, key -> Counter.builder("bookings.journal.failures")
+      .description("Committed booking events the journal failed to append, by type")
+      .tag("type", type.name())
+      .register(meterRegistry)).increment();
+  }
+
+  private Timer timer(String operation, String phase) {
+    return timers.computeIfAbsent(operation + "/" + phase, key -> Timer.builder("bookings.operation")
+      .description("Time spent in each phase of a booking operation")
+      .tag("operation", operation)
+      .tag("phase", phase)
+      .publishPercentiles(0.5, 0.99, 0.999)
+      .publishPercentileHistogram()
+      .register(meterRegistry));
+  }
+}
@@ -0,0 +1,189 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.orm.BookingEntity;
+import com.faex.bookings.orm.ReplicaRoutingDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Feeds the read replica from the booking journal and serves lookups from it while it is fresh enough, falling back to the primary
+@Slf4j
+@Component
+public class BookingReplica {
+
+  public static final String PRIMARY = "primary", REPLICA = "replica";
+
+  // a committed write the replica has not applied yet, queued in commit order so the head is the oldest
+  private record Write(long time, CompletableFuture<Long> sequence) {
+  }
+
+  private final BookingJournal bookingJournal;
+  private final BookingMetrics bookingMetrics;
+  private final TransactionTemplate reads;
+  private final JdbcTemplate primary, replica;
+  private final long maxStalenessMillis;
+  private final Queue<Write> writes = new ConcurrentLinkedQueue<>();
+  // journal sequences of the unapplied writes, by booking id and by email
+  private final Map<Object, CompletableFuture<Long>> pending = new ConcurrentHashMap<>();
+  // last journal sequence applied to the replica, -1 until it has been seeded
+  private volatile long applied = -1;
+  // set when a write never reached the journal, so the replica misses it until it is seeded again
+  private volatile boolean stale;
+  // where the previous replication stopped reading the journal
+  private BookingJournal.Position position;
+
+  public BookingReplica(DataSource dataSource, BookingJournal bookingJournal, BookingMetrics bookingMetrics, PlatformTransactionManager transactionManager,
+                        @Value("${bookings.replica.max-staleness-ms:1000}") long maxStalenessMillis) {
+    this.bookingJournal = bookingJournal;
+    this.bookingMetrics = bookingMetrics;
+    this.reads = new TransactionTemplate(transactionManager);
+    this.reads.setReadOnly(true);
+    this.maxStalenessMillis = maxStalenessMillis;
+    if (dataSource instanceof ReplicaRoutingDataSource routing && bookingJournal.isEnabled()) {
+      this.primary = new JdbcTemplate(routing.getPrimary());
+      this.replica = new JdbcTemplate(routing.getReplica());
+    } else {
+      if (dataSource instanceof ReplicaRoutingDataSource) {
+        log.warn("Read replica configured without a booking journal to feed it, lookups stay on the primary");
+      }
+      this.primary = null;
+      this.replica = null;
+    }
+  }
+
+  public boolean isEnabled() {
+    return replica != null;
+  }
+
+  // copies the booking table once the schema exists, then follows the journal from the sequence read before the copy
+  @EventListener(ApplicationReadyEvent.class)
+  public synchronized void seed() {
+    if (!isEnabled()) {
+      return;
+    }
+    applied = -1;
+    // cleared before the copy, so a write failing while it runs is caught by the next seed
+    stale = false;
+    // writes that already failed committed before the copy, so it carries them
+    writes.removeIf(write -> write.sequence().isCompletedExceptionally());
+    pending.values().removeIf(CompletableFuture::isCompletedExceptionally);
+    try {
+      var from = bookingJournal.getNextSequence();
+      // only the copied table is replaced, whatever else the replica database holds
+      replica.execute("DROP TABLE IF EXISTS booking_entity CASCADE");
+      // the id sequence is left out: the replica never generates ids, and a reseed would create it twice
+      primary.queryForList("SCRIPT TABLE booking_entity", String.class).stream()
+        .filter(statement -> !statement.startsWith("CREATE SEQUENCE"))
+        .forEach(replica::execute);
+      position = bookingJournal.position(from);
+      applied = from - 1;
+      log.info("Seeded read replica, following the journal from sequence {}", from);
+    } catch (RuntimeException e) {
+      stale = true; // retried by the next replication
+      throw e;
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${bookings.replica.interval-ms:100}", initialDelayString = "${bookings.replica.interval-ms:100}")
+  public synchronized void replicate() {
+    if (stale) {
+      // lookups have left the replica since it went stale, so its table can be replaced
+      log.warn("Reseeding read replica that missed a write or failed to seed");
+      seed();
+      return;
+    }
+    if (applied < 0) {
+      return;
+    }
+    try {
+      position = bookingJournal.tail(position, event -> {
+        if (event.sequence() > applied) {
+          apply(event);
+          applied = event.sequence();
+        }
+      });
+    } finally {
+      writes.removeIf(write -> isApplied(write.sequence()));
+      pending.values().removeIf(this::isApplied);
+    }
+  }
+
+  // called after commit with the write's journal append, so reads of its booking and email see it until the replica has it
+  public void written(BookingEntity bookingEntity, CompletableFuture<Long> sequence) {
+    if (!isEnabled()) {
+      return;
+    }
+    // the replica will never see a write the journal failed to append, so it goes stale until the next seed
+    sequence.whenComplete((appended, e) -> {
+      if (e != null) {
+        stale = true;
+      }
+    });
+    writes.add(new Write(System.currentTimeMillis(), sequence));
+    // a key stays pending until the replica has applied every write to it
+    Stream.of(bookingEntity.getId(), bookingEntity.getEmail())
+      .filter(Objects::nonNull)
+      .forEach(key -> pending.merge(key, sequence, (older, newer) -> older.thenCombine(newer, Math::max)));
+  }
+
+  // key is the booking id or email the lookup selects by, or null when it scans across bookings
+  public <T> T read(Object key, Supplier<T> supplier) {
+    if (isFresh(key)) {
+      bookingMetrics.read(REPLICA);
+      return ReplicaRoutingDataSource.onReplica(() -> reads.execute(status -> supplier.get()));
+    }
+    bookingMetrics.read(PRIMARY);
+    return reads.execute(status -> supplier.get());
+  }
+
+  boolean isFresh(Object key) {
+    if (applied < 0 || stale) {
+      return false;
+    }
+    var oldest = writes.peek();
+    if (oldest != null && oldest.time() < System.currentTimeMillis() - maxStalenessMillis) {
+      return false;
+    }
+    // scans are only bounded by staleness; lookups of a booking or email also wait for the replica to apply their own writes
+    return key == null || !pending.containsKey(key);
+  }
+
+  // a failed write is done with too, once the replica is marked stale; its completion callback may not have run yet
+  private boolean isApplied(CompletableFuture<Long> sequence) {
+    if (sequence.isCompletedExceptionally()) {
+      stale = true;
+      return true;
+    }
+    return sequence.isDone() && sequence.join() <= applied;
+  }
+
+  // replays are idempotent: rows are inserted once and only ever moved forward in version
+  private void apply(BookingJournal.Event event) {
+    if (event.type() == BookingJournal.Type.ARCHIVED) {
+      replica.update("DELETE FROM booking_entity WHERE id = ?", event.bookingId());
+      return;
+    }
+    var status = (event.type() == BookingJournal.Type.CANCELLED ? BookingEntity.Status.DELETED : BookingEntity.Status.CONFIRMED).ordinal();
+    replica.update("INSERT INTO booking_entity (id, version, property, created_time, updated_time, deleted_time, email, full_name, check_in, check_out, status) "
+        + "SELECT ?, ?, ?, 0, 0, 0, ?, ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM booking_entity WHERE id = ?)",
+      event.bookingId(), event.version(), event.property(), event.email(), event.fullName(), event.checkIn(), event.checkOut(), status, event.bookingId());
+    replica.update("UPDATE booking_entity SET version = ?, property = ?, email = ?, full_name = ?, check_in = ?, check_out = ?, status = ? WHERE id = ? AND version < ?",
+      event.version(), event.property(), event.email(), event.fullName(), event.checkIn(), event.checkOut(), status, event.bookingId(), event.version());
+  }
+}
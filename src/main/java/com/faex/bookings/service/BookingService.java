@@ -4,81 +4,170 @@ import com.faex.bookings.orm.BookingDateEntity;
 import com.faex.bookings.orm.BookingDateRepository;
 import com.faex.bookings.orm.BookingEntity;
 import com.faex.bookings.orm.BookingRepository;
+import com.faex.bookings.orm.BookingSummary;
 import com.faex.bookings.rest.Availability;
+import com.faex.bookings.rest.AvailabilityBitmap;
 import com.faex.bookings.rest.AvailabilityDate;
+import com.faex.bookings.rest.AvailabilityRanges;
+import com.faex.bookings.rest.AvailabilityRun;
+import com.faex.bookings.rest.BatchBookingResult;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+@Slf4j
 @Service
 public class BookingService {
 
-  @Transactional(propagation = Propagation.REQUIRES_NEW)
   public BookingEntity createBooking(Booking booking) {
-    validateBookingDates(booking);
-    var bookingEntity = bookingRepository.save(BookingEntity.builder()
-      .createdTime(System.nanoTime())
-      .status(BookingEntity.Status.CONFIRMED)
-      .checkIn(booking.getCheckIn())
-      .checkOut(booking.getCheckOut())
-      .email(booking.getEmail())
-      .fullName(booking.getFullName())
-      .build());
-    booking.getDates().forEach(date -> dateRepository.save(BookingDateEntity.builder()
-      .id(date)
-      .bookingId(bookingEntity.getId())
-      .build()));
-    return bookingEntity;
+    return createBooking(booking, null);
+  }
+
+  public BookingEntity createBooking(Booking booking, String idempotencyKey) {
+    var key = idempotencyKey == null ? null : "create:" + idempotencyKey;
+    var property = booking.getProperty();
+    var fingerprint = IdempotencyKeys.fingerprint("create", booking);
+    return idempotencyKeys.execute(key, fingerprint, () -> execute("create", new BookingCommand<>(() -> {
+      if (booking.getHold() == null) {
+        claimDates(property, booking.getDates());
+      } else {
+        bookingHolds.take(booking.getHold(), property, booking.getDates());
+      }
+    }, () -> {
+      createMissingDates(property, booking.getDates());
+      var bookingEntity = bookingRepository.save(buildBookingEntity(booking));
+      bookBookingDates(property, booking.getDates());
+      idempotencyKeys.record(key, fingerprint, bookingEntity);
+      afterCommit(() -> {
+        if (booking.getHold() != null) {
+          bookingHolds.converted(booking.getHold());
+        }
+        availabilityIndex.update(property, Collections.emptyList(), booking.getDates());
+        journal(BookingJournal.Type.CREATED, bookingEntity);
+      });
+      return bookingEntity;
+    }, () -> {
+      if (booking.getHold() == null) {
+        dateClaims.releaseAll(property, booking.getDates());
+      } else {
+        bookingHolds.restore(booking.getHold());
+      }
+    })));
+  }
+
+  public List<BatchBookingResult> createBookings(List<Booking> bookings) {
+    return bookingMetrics.time("batch", BookingMetrics.TOTAL, () -> persistBatch(bookings));
   }
 
-  @Transactional(propagation = Propagation.REQUIRES_NEW)
   public BookingEntity updateBooking(String id, Booking booking) {
-    var bookingEntity = getBookingEntity(id);
-    if (!(Objects.equals(bookingEntity.getEmail(), booking.getEmail()) && Objects.equals(bookingEntity.getFullName(), booking.getFullName()))) {
-      throw new IllegalArgumentException("Email and full name don't match existing record");
-    }
-    deleteBookingDates(bookingEntity);
-    validateBookingDates(booking);
-    var updatedBookingEntity = bookingRepository.save(bookingEntity
-      .setUpdatedTime(System.nanoTime())
-      .setCheckIn(booking.getCheckIn())
-      .setCheckOut(booking.getCheckOut()));
-    booking.getDates().forEach(date -> dateRepository.save(BookingDateEntity.builder()
-      .id(date)
-      .bookingId(updatedBookingEntity.getId())
-      .build()));
-    return updatedBookingEntity;
+    return updateBooking(id, booking, null, null);
+  }
+
+  public BookingEntity updateBooking(String id, Booking booking, Long expectedVersion, String idempotencyKey) {
+    var key = idempotencyKey == null ? null : "update:" + id + ":" + idempotencyKey;
+    var fingerprint = IdempotencyKeys.fingerprint("update", booking);
+    return idempotencyKeys.execute(key, fingerprint, () -> modifyBooking(id, booking, expectedVersion, key, fingerprint));
   }
 
   public void deleteBooking(String id) {
-    var bookingEntity = getBookingEntity(id);
-    bookingRepository.save(bookingEntity
-      .setDeletedTime(System.nanoTime())
-      .setStatus(BookingEntity.Status.DELETED));
-    deleteBookingDates(bookingEntity);
+    deleteBooking(id, null);
+  }
+
+  public void deleteBooking(String id, Long expectedVersion) {
+    if (expectedVersion != null) {
+      checkVersion(getBookingEntity(id), expectedVersion); // reject a stale delete before opening a transaction
+    }
+    execute("delete", new BookingCommand<>(() -> {}, () -> {
+      var bookingEntity = checkVersion(getBookingEntity(id), expectedVersion);
+      var releasedDates = releaseBookingDates(bookingEntity);
+      bookingRepository.save(bookingEntity
+        .setDeletedTime(System.nanoTime())
+        .setStatus(BookingEntity.Status.DELETED));
+      afterCommit(() -> {
+        availabilityIndex.update(bookingEntity.getProperty(), releasedDates, Collections.emptyList());
+        dateClaims.releaseAll(bookingEntity.getProperty(), releasedDates);
+        journal(BookingJournal.Type.CANCELLED, bookingEntity);
+      });
+      return null;
+    }, () -> {}));
+  }
+
+  public BookingHolds.Hold placeHold(int property, List<Integer> dates) {
+    return bookingMetrics.time("hold", BookingMetrics.TOTAL, () -> {
+      claimDates(property, dates);
+      return bookingHolds.add(property, dates);
+    });
+  }
+
+  public boolean releaseHold(String id) {
+    return bookingHolds.release(id);
+  }
+
+  public BookingSummary getBooking(String id) {
+    var bookingId = Long.parseLong(id);
+    return bookingReplica.read(bookingId, () -> bookingRepository.findSummaryById(bookingId)).orElseThrow(() -> new IllegalArgumentException("Id not found"));
+  }
+
+  public List<BookingSummary> findBookings(String email, BookingEntity.Status status, long after, int limit) {
+    var page = PageRequest.of(0, limit);
+    if (email == null) {
+      if (status == null) {
+        throw new IllegalArgumentException("Filter by email or status");
+      }
+      return bookingReplica.read(null, () -> bookingRepository.findSummariesByStatusAfter(status, after, page));
+    }
+    return bookingReplica.read(email, () -> status == null
+      ? bookingRepository.findSummariesByEmailAfter(email, after, page)
+      : bookingRepository.findSummariesByEmailAndStatusAfter(email, status, after, page));
   }
 
   public Availability getAvailability(BookingRange bookingRange) {
-    var dateSet = dateRepository.findAllByIdBetween(bookingRange.getFrom(), bookingRange.getTo()).stream()
-      .map(BookingDateEntity::getId).collect(Collectors.toSet());
-    var dates = bookingRange.getDates().stream().map(date -> AvailabilityDate.builder()
-      .status(dateSet.contains(date)? AvailabilityDate.Status.UNAVAILABLE : AvailabilityDate.Status.AVAILABLE)
-      .date(date)
-      .build()).toList();
-    return Availability.builder()
-      .from(bookingRange.getFrom())
-      .to(bookingRange.getTo())
-      .count(dates.size())
-      .dates(dates)
-      .build();
+    return bookingMetrics.time("availability", BookingMetrics.TOTAL, () -> buildAvailability(bookingRange));
   }
 
+  public AvailabilityRanges getAvailabilityRanges(BookingRange bookingRange) {
+    return bookingMetrics.time("availability", BookingMetrics.TOTAL, () -> buildAvailabilityRanges(bookingRange));
+  }
+
+  public AvailabilityBitmap getAvailabilityBitmap(BookingRange bookingRange) {
+    return bookingMetrics.time("availability", BookingMetrics.TOTAL, () -> buildAvailabilityBitmap(bookingRange));
+  }
+
+  @Transactional
   public void deleteDates() {
-    dateRepository.deleteAll();
+    availabilityIndex.discardSnapshot();
+    dateRepository.deleteAllInBatch();
+    afterCommit(() -> {
+      availabilityIndex.clear();
+      bookingHolds.clear();
+      dateClaims.clear();
+    });
+    afterCompletion(availabilityIndex::resumeSnapshots);
   }
 
   @Autowired
@@ -87,22 +176,368 @@ public class BookingService {
   @Autowired
   private final BookingDateRepository dateRepository;
 
-  public BookingService(BookingRepository bookingRepository, BookingDateRepository dateRepository) {
+  private final AvailabilityIndex availabilityIndex;
+
+  private final DateClaims dateClaims;
+
+  private final TransactionTemplate transactionTemplate;
+
+  private final BookingMetrics bookingMetrics;
+
+  private final BookingWindow bookingWindow;
+
+  private final IdempotencyKeys idempotencyKeys;
+
+  private final BookingJournal bookingJournal;
+
+  private final BookingReplica bookingReplica;
+
+  private final BookingHolds bookingHolds;
+
+  private final int capacity;
+
+  private final int batchSize;
+
+  private final GroupCommitWriter groupCommitWriter;
+
+  public BookingService(BookingRepository bookingRepository, BookingDateRepository dateRepository, AvailabilityIndex availabilityIndex,
+                        DateClaims dateClaims, BookingMetrics bookingMetrics, BookingWindow bookingWindow,
+                        IdempotencyKeys idempotencyKeys, BookingJournal bookingJournal,
+                        BookingReplica bookingReplica, BookingHolds bookingHolds, PlatformTransactionManager transactionManager, @Value("${bookings.capacity:1}") int capacity,
+                        @Value("${bookings.batch.size:100}") int batchSize, @Value("${bookings.writer.mode:direct}") String writerMode,
+                        @Value("${bookings.writer.queue-size:1024}") int writerQueueSize, @Value("${bookings.writer.group-size:64}") int writerGroupSize) {
     this.bookingRepository = bookingRepository;
     this.dateRepository = dateRepository;
+    this.availabilityIndex = availabilityIndex;
+    this.dateClaims = dateClaims;
+    this.bookingMetrics = bookingMetrics;
+    this.bookingWindow = bookingWindow;
+    this.idempotencyKeys = idempotencyKeys;
+    this.bookingJournal = bookingJournal;
+    this.bookingReplica = bookingReplica;
+    this.bookingHolds = bookingHolds;
+    this.capacity = capacity;
+    this.batchSize = batchSize;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.groupCommitWriter = writerMode.equals("group")
+      ? new GroupCommitWriter(transactionTemplate, writerQueueSize, writerGroupSize, 1000)
+      : null;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (groupCommitWriter != null) {
+      groupCommitWriter.close();
+    }
+  }
+
+  private List<BatchBookingResult> persistBatch(List<Booking> bookings) {
+    var results = new BatchBookingResult[bookings.size()];
+    var accepted = new ArrayList<Integer>();
+    try {
+      bookingMetrics.time("batch", BookingMetrics.CLAIM, () -> {
+        for (int i = 0; i < bookings.size(); i++) {
+          if (bookings.get(i).getHold() != null) {
+            results[i] = batchBookingResult(BatchBookingResult.Status.INVALID, new IllegalArgumentException("Holds are converted one booking at a time"));
+          } else if (dateClaims.claimAll(bookings.get(i).getProperty(), bookings.get(i).getDates())) {
+            accepted.add(i);
+          } else {
+            results[i] = batchBookingResult(BatchBookingResult.Status.CONFLICT, new DatesUnavailableException());
+          }
+        }
+      });
+    } catch (RuntimeException e) {
+      accepted.forEach(i -> {
+        dateClaims.releaseAll(bookings.get(i).getProperty(), bookings.get(i).getDates());
+        results[i] = batchBookingResult(BatchBookingResult.Status.FAILED, e);
+      });
+      // the booking that threw and every one after it were never claimed
+      for (int i = 0; i < results.length; i++) {
+        if (results[i] == null) {
+          results[i] = batchBookingResult(BatchBookingResult.Status.FAILED, e);
+        }
+      }
+      return List.of(results);
+    }
+    for (int from = 0; from < accepted.size(); from += batchSize) {
+      var chunk = accepted.subList(from, Math.min(from + batchSize, accepted.size()));
+      try {
+        var bookingEntities = bookingMetrics.time("batch", BookingMetrics.WRITE,
+          () -> write(() -> persistBookings(chunk.stream().map(bookings::get).toList())));
+        for (int i = 0; i < chunk.size(); i++) {
+          results[chunk.get(i)] = BatchBookingResult.builder().status(BatchBookingResult.Status.CREATED).id(bookingEntities.get(i).getId()).build();
+        }
+      } catch (RuntimeException e) {
+        chunk.forEach(i -> results[i] = createBatchItem(bookings.get(i)));
+      }
+    }
+    return List.of(results);
+  }
+
+  private Availability buildAvailability(BookingRange bookingRange) {
+    var dates = new AvailabilityDate[bookingRange.getTo() - bookingRange.getFrom()];
+    for (int i = 0; i < dates.length; i++) {
+      var date = bookingRange.getFrom() + i;
+      dates[i] = bookingWindow.getFragment(date, availabilityIndex.getRemaining(bookingRange.getProperty(), date));
+    }
+    return Availability.builder()
+      .from(bookingWindow.getKey(bookingRange.getFrom()))
+      .to(bookingWindow.getKey(bookingRange.getTo()))
+      .count(dates.length)
+      .dates(Arrays.asList(dates))
+      .build();
+  }
+
+  private AvailabilityRanges buildAvailabilityRanges(BookingRange bookingRange) {
+    var ranges = new ArrayList<AvailabilityRun>();
+    var start = bookingRange.getFrom();
+    var available = false;
+    for (int date = bookingRange.getFrom(); date < bookingRange.getTo(); date++) {
+      var remaining = availabilityIndex.getRemaining(bookingRange.getProperty(), date) > 0;
+      if (date > start && remaining != available) {
+        ranges.add(availabilityRun(start, date, available));
+        start = date;
+      }
+      available = remaining;
+    }
+    ranges.add(availabilityRun(start, bookingRange.getTo(), available));
+    return AvailabilityRanges.builder()
+      .from(bookingWindow.getKey(bookingRange.getFrom()))
+      .to(bookingWindow.getKey(bookingRange.getTo()))
+      .count(bookingRange.getTo() - bookingRange.getFrom())
+      .ranges(ranges)
+      .build();
+  }
+
+  private AvailabilityRun availabilityRun(int from, int to, boolean available) {
+    return AvailabilityRun.builder()
+      .from(bookingWindow.getKey(from))
+      .to(bookingWindow.getKey(to))
+      .status(available ? AvailabilityDate.Status.AVAILABLE : AvailabilityDate.Status.UNAVAILABLE)
+      .build();
+  }
+
+  private AvailabilityBitmap buildAvailabilityBitmap(BookingRange bookingRange) {
+    var count = bookingRange.getTo() - bookingRange.getFrom();
+    var bitmap = new byte[(count + 7) / 8];
+    for (int i = 0; i < count; i++) {
+      if (availabilityIndex.getRemaining(bookingRange.getProperty(), bookingRange.getFrom() + i) > 0) {
+        bitmap[i >> 3] |= 1 << (i & 7);
+      }
+    }
+    return AvailabilityBitmap.builder()
+      .from(bookingWindow.getKey(bookingRange.getFrom()))
+      .to(bookingWindow.getKey(bookingRange.getTo()))
+      .count(count)
+      .bitmap(Base64.getEncoder().encodeToString(bitmap))
+      .build();
+  }
+
+  private BookingEntity modifyBooking(String id, Booking booking, Long expectedVersion, String key, String fingerprint) {
+    var existingBookingEntity = checkVersion(getBookingEntity(id), expectedVersion);
+    var property = booking.getProperty();
+    if (existingBookingEntity.getProperty() != property) {
+      throw new IllegalArgumentException("Booking belongs to another property");
+    }
+    if (booking.getHold() != null) {
+      throw new IllegalArgumentException("Holds are converted by creating a booking");
+    }
+    var bookedDates = getBookedDates(existingBookingEntity);
+    var claimedDates = booking.getDates().stream().filter(date -> !bookedDates.contains(date)).toList();
+    return execute("update", new BookingCommand<>(() -> claimDates(property, claimedDates), () -> {
+      var bookingEntity = checkVersion(getBookingEntity(id), expectedVersion);
+      if (!(Objects.equals(bookingEntity.getEmail(), booking.getEmail()) && Objects.equals(bookingEntity.getFullName(), booking.getFullName()))) {
+        throw new IllegalArgumentException("Email and full name don't match existing record");
+      }
+      if (bookingEntity.getStatus() != BookingEntity.Status.CONFIRMED) {
+        throw new IllegalArgumentException("Booking is cancelled");
+      }
+      var releasedDates = releaseBookingDates(bookingEntity);
+      if (!releasedDates.equals(bookedDates)) {
+        throw new ConcurrencyFailureException("Booking was modified concurrently");
+      }
+      createMissingDates(property, claimedDates);
+      bookBookingDates(property, booking.getDates());
+      // flushed here so the response carries the incremented version
+      var updatedBookingEntity = bookingRepository.saveAndFlush(bookingEntity
+        .setUpdatedTime(System.nanoTime())
+        .setCheckIn(booking.getCheckIn())
+        .setCheckOut(booking.getCheckOut()));
+      idempotencyKeys.record(key, fingerprint, updatedBookingEntity);
+      afterCommit(() -> {
+        availabilityIndex.update(property, releasedDates, booking.getDates());
+        dateClaims.releaseAll(property, releasedDates.stream().filter(date -> !booking.getDates().contains(date)).toList());
+        journal(BookingJournal.Type.UPDATED, updatedBookingEntity);
+      });
+      return updatedBookingEntity;
+    }, () -> dateClaims.releaseAll(property, claimedDates)));
   }
 
   private BookingEntity getBookingEntity(String id) {
     return bookingRepository.findById(Long.valueOf(id)).orElseThrow(() -> new IllegalArgumentException("Id not found"));
   }
 
-  private void deleteBookingDates(BookingEntity bookingEntity) {
-    dateRepository.findAllByBookingId(bookingEntity.getId()).forEach(o -> dateRepository.deleteById(o.getId()));
+  private static BookingEntity checkVersion(BookingEntity bookingEntity, Long expectedVersion) {
+    if (expectedVersion != null && bookingEntity.getVersion() != expectedVersion) {
+      throw new BookingVersionMismatchException();
+    }
+    return bookingEntity;
+  }
+
+  private Set<Integer> getBookedDates(BookingEntity bookingEntity) {
+    if (bookingEntity.getStatus() != BookingEntity.Status.CONFIRMED) {
+      return Collections.emptySet();
+    }
+    return IntStream.range(bookingEntity.getCheckIn(), bookingEntity.getCheckOut()).boxed().collect(Collectors.toSet());
+  }
+
+  private BookingEntity buildBookingEntity(Booking booking) {
+    return BookingEntity.builder()
+      .createdTime(System.nanoTime())
+      .status(BookingEntity.Status.CONFIRMED)
+      .property(booking.getProperty())
+      .checkIn(booking.getCheckIn())
+      .checkOut(booking.getCheckOut())
+      .email(booking.getEmail())
+      .fullName(booking.getFullName())
+      .build();
+  }
+
+  private List<BookingEntity> persistBookings(List<Booking> bookings) {
+    var dates = bookings.stream().collect(Collectors.groupingBy(Booking::getProperty, TreeMap::new,
+      Collectors.flatMapping(booking -> booking.getDates().stream(), Collectors.toList())));
+    dates.forEach((property, propertyDates) -> createMissingDates(property, propertyDates.stream().distinct().toList()));
+    var bookingEntities = bookingRepository.saveAll(bookings.stream().map(this::buildBookingEntity).toList());
+    dates.forEach((property, propertyDates) -> propertyDates.stream().collect(Collectors.groupingBy(date -> date, TreeMap::new, Collectors.counting()))
+      .forEach((date, count) -> {
+        if (dateRepository.incrementBookedBy(property, date, count.intValue()) != 1) {
+          throw new DatesUnavailableException();
+        }
+      }));
+    afterCommit(() -> {
+      dates.forEach((property, propertyDates) -> availabilityIndex.update(property, Collections.emptyList(), propertyDates));
+      bookingEntities.forEach(bookingEntity -> journal(BookingJournal.Type.CREATED, bookingEntity));
+    });
+    return bookingEntities;
+  }
+
+  private BatchBookingResult createBatchItem(Booking booking) {
+    try {
+      var bookingEntity = write(() -> persistBookings(List.of(booking))).get(0);
+      return BatchBookingResult.builder().status(BatchBookingResult.Status.CREATED).id(bookingEntity.getId()).build();
+    } catch (DatesUnavailableException e) {
+      dateClaims.releaseAll(booking.getProperty(), booking.getDates());
+      return batchBookingResult(BatchBookingResult.Status.CONFLICT, e);
+    } catch (RuntimeException e) {
+      dateClaims.releaseAll(booking.getProperty(), booking.getDates());
+      return batchBookingResult(BatchBookingResult.Status.FAILED, e);
+    }
+  }
+
+  private static BatchBookingResult batchBookingResult(BatchBookingResult.Status status, Exception e) {
+    return BatchBookingResult.builder().status(status).error(e.getMessage()).build();
+  }
+
+  private Set<Integer> releaseBookingDates(BookingEntity bookingEntity) {
+    var dates = getBookedDates(bookingEntity);
+    if (!dates.isEmpty() && dateRepository.decrementBookedInBatch(bookingEntity.getProperty(), dates) != dates.size()) {
+      throw new ConcurrencyFailureException("Booking was modified concurrently");
+    }
+    return dates;
+  }
+
+  private void bookBookingDates(int property, List<Integer> dates) {
+    if (dateRepository.incrementBookedInBatch(property, dates) != dates.size()) {
+      throw new DatesUnavailableException();
+    }
+  }
+
+  // runs inside the write transaction, flushed so the guarded increments that follow see the new rows
+  private void createMissingDates(int property, List<Integer> dates) {
+    var existingDates = dateRepository.findAllByPropertyAndDateIn(property, dates).stream().map(BookingDateEntity::getDate).collect(Collectors.toSet());
+    var missingDates = dates.stream().filter(date -> !existingDates.contains(date)).map(date -> BookingDateEntity.builder()
+      .property(property)
+      .date(date)
+      .capacity(capacity)
+      .build()).toList();
+    if (!missingDates.isEmpty()) {
+      dateRepository.saveAll(missingDates);
+      dateRepository.flush();
+    }
+  }
+
+  // in memory only: the rows behind the claimed dates are created by the write
+  private void claimDates(int property, List<Integer> dates) {
+    if (!dateClaims.claimAll(property, dates)) {
+      throw new DatesUnavailableException();
+    }
+  }
+
+  // a night first booked by two transactions at once is inserted by both, so the loser runs again against the winner's row
+  private <T> T write(Supplier<T> write) {
+    try {
+      return transactionTemplate.execute(status -> write.get());
+    } catch (DataIntegrityViolationException e) {
+      return transactionTemplate.execute(status -> write.get());
+    }
+  }
+
+  private <T> T execute(String operation, BookingCommand<T> command) {
+    return bookingMetrics.time(operation, BookingMetrics.TOTAL, () -> execute(new BookingCommand<>(
+      () -> bookingMetrics.time(operation, BookingMetrics.CLAIM, command.decide()),
+      () -> bookingMetrics.time(operation, BookingMetrics.WRITE, command.write()),
+      command.release())));
+  }
+
+  private <T> T execute(BookingCommand<T> command) {
+    if (groupCommitWriter != null) {
+      try {
+        return groupCommitWriter.submit(command).join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException cause ? cause : e;
+      }
+    }
+    command.decide().run();
+    try {
+      return write(command.write());
+    } catch (RuntimeException e) {
+      command.release().run();
+      throw e;
+    }
+  }
+
+  // the write has committed either way, so a failed append is logged and counted rather than thrown
+  private void journal(BookingJournal.Type type, BookingEntity bookingEntity) {
+    var appended = bookingJournal.append(type, bookingEntity);
+    appended.whenComplete((sequence, e) -> {
+      if (e != null) {
+        log.error("Failed to journal {} of booking {}", type, bookingEntity.getId(), e);
+        bookingMetrics.journalFailed(type);
+      }
+    });
+    bookingReplica.written(bookingEntity, appended);
+  }
+
+  private void afterCompletion(Runnable runnable) {
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        runnable.run();
+      }
+    });
   }
 
-  private void validateBookingDates(Booking booking) {
-    if (!dateRepository.findAllById(booking.getDates()).isEmpty()) {
-      throw new IllegalArgumentException("Dates are not available");
+  private void afterCommit(Runnable runnable) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      runnable.run();
+      return;
     }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        runnable.run();
+      }
+    });
   }
 }
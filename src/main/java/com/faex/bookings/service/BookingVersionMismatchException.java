@@ -0,0 +1,7 @@
+package com.faex.bookings.service;
+
+public class BookingVersionMismatchException extends IllegalStateException {
+  public BookingVersionMismatchException() {
+    super("Booking was modified since it was read");
+  }
+}
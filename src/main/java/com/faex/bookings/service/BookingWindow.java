@@ -0,0 +1,92 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.rest.AvailabilityDate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+// The bookable horizon as shared ISO date keys and per-day availability fragments, rebuilt at Bermuda midnight
+@Component
+public class BookingWindow {
+
+  private record Days(long today, int from, int to, String[] keys, Map<String, Integer> epochDays, AvailabilityDate[][] fragments) {
+  }
+
+  private final int capacity;
+  private volatile Days days;
+
+  public BookingWindow(@Value("${bookings.capacity:1}") int capacity) {
+    this.capacity = capacity;
+    this.days = build(DayCounters.today());
+  }
+
+  @Scheduled(cron = "0 0 0 * * *", zone = "Atlantic/Bermuda")
+  public void roll() {
+    current();
+  }
+
+  public int getFrom() {
+    return current().from();
+  }
+
+  public int getTo() {
+    return current().to();
+  }
+
+  public String getKey(int epochDay) {
+    var days = current();
+    var i = epochDay - days.today();
+    return i >= 0 && i < days.keys().length ? days.keys()[(int) i] : LocalDate.ofEpochDay(epochDay).toString();
+  }
+
+  public int parse(String date) {
+    var epochDay = current().epochDays().get(date);
+    return epochDay != null ? epochDay : (int) LocalDate.parse(date).toEpochDay();
+  }
+
+  public AvailabilityDate getFragment(int epochDay, int remaining) {
+    var days = current();
+    var i = epochDay - days.today();
+    if (i < 0 || i >= days.fragments().length || remaining > capacity) {
+      return fragment(LocalDate.ofEpochDay(epochDay).toString(), remaining);
+    }
+    return days.fragments()[(int) i][remaining];
+  }
+
+  private Days current() {
+    var days = this.days;
+    var today = DayCounters.today();
+    if (days.today() != today) {
+      this.days = days = build(today);
+    }
+    return days;
+  }
+
+  private Days build(long today) {
+    var keys = new String[DayCounters.WINDOW_DAYS];
+    var epochDays = new HashMap<String, Integer>();
+    var fragments = new AvailabilityDate[DayCounters.WINDOW_DAYS][capacity + 1];
+    for (int i = 0; i < keys.length; i++) {
+      var epochDay = (int) today + i;
+      keys[i] = LocalDate.ofEpochDay(epochDay).toString().intern();
+      epochDays.put(keys[i], epochDay);
+      for (int remaining = 0; remaining <= capacity; remaining++) {
+        fragments[i][remaining] = fragment(keys[i], remaining);
+      }
+    }
+    var to = (int) LocalDate.ofEpochDay(today).plusMonths(1).toEpochDay();
+    return new Days(today, (int) today + 1, to, keys, Map.copyOf(epochDays), fragments);
+  }
+
+  private static AvailabilityDate fragment(String date, int remaining) {
+    return AvailabilityDate.builder()
+      .date(date)
+      .status(remaining == 0 ? AvailabilityDate.Status.UNAVAILABLE : AvailabilityDate.Status.AVAILABLE)
+      .remaining(remaining)
+      .build();
+  }
+}
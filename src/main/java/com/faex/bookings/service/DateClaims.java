@@ -0,0 +1,70 @@
+package com.faex.bookings.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Lock-free per-day claims bounded by capacity, one ring per configured property, taken before a booking transaction opens
+@Component
+public class DateClaims {
+
+  private final Map<Integer, DayCounters> claimed;
+  private final AvailabilitySnapshot availabilitySnapshot;
+  private final int capacity;
+
+  public DateClaims(AvailabilitySnapshot availabilitySnapshot, @Value("${bookings.capacity:1}") int capacity,
+                    @Value("${bookings.properties:0}") Set<Integer> properties) {
+    this.claimed = Stream.concat(Stream.of(AvailabilityIndex.DEFAULT_PROPERTY), properties.stream()).distinct()
+      .collect(Collectors.toUnmodifiableMap(property -> property, property -> new DayCounters()));
+    this.availabilitySnapshot = availabilitySnapshot;
+    this.capacity = capacity;
+  }
+
+  @PostConstruct
+  public void load() {
+    clear();
+    availabilitySnapshot.load().forEach((property, dates) -> {
+      var shard = claimed.get(property);
+      if (shard != null) { // a property no longer configured, skipped as the availability index does
+        dates.forEach((date, count) -> shard.add(date, count, Integer.MAX_VALUE));
+      }
+    });
+  }
+
+  public boolean claimAll(int property, Collection<Integer> dates) {
+    var claimed = shard(property);
+    var epochDays = dates.stream().mapToInt(Integer::intValue).toArray();
+    for (int i = 0; i < epochDays.length; i++) {
+      if (!claimed.add(epochDays[i], 1, capacity)) {
+        for (int j = 0; j < i; j++) {
+          claimed.add(epochDays[j], -1, capacity);
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void releaseAll(int property, Collection<Integer> dates) {
+    var claimed = shard(property);
+    dates.forEach(date -> claimed.add(date, -1, capacity));
+  }
+
+  public void clear() {
+    claimed.values().forEach(DayCounters::clear);
+  }
+
+  private DayCounters shard(int property) {
+    var shard = claimed.get(property);
+    if (shard == null) {
+      throw new IllegalArgumentException("Unknown property " + property);
+    }
+    return shard;
+  }
+}
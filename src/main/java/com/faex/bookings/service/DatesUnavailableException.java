@@ -0,0 +1,7 @@
+package com.faex.bookings.service;
+
+public class DatesUnavailableException extends IllegalArgumentException {
+  public DatesUnavailableException() {
+    super("Dates are not available");
+  }
+}
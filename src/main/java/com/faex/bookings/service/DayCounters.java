@@ -0,0 +1,76 @@
+package com.faex.bookings.service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free per-day counters over a ring of epoch-days starting today; each slot packs (epoch-day + 1, count)
+class DayCounters {
+
+  static final int WINDOW_DAYS = 64;
+  static final ZoneId ZONE_ID = ZoneId.of("Atlantic/Bermuda");
+
+  private record Today(long epochDay, long untilMillis) {
+    static Today now() {
+      var date = LocalDate.now(ZONE_ID);
+      return new Today(date.toEpochDay(), date.plusDays(1).atStartOfDay(ZONE_ID).toInstant().toEpochMilli());
+    }
+  }
+
+  // recomputed only once the clock passes the next Bermuda midnight
+  private static volatile Today today = Today.now();
+
+  private final AtomicLongArray slots = new AtomicLongArray(WINDOW_DAYS);
+
+  int get(long epochDay) {
+    return Math.max(count(slots.get(slot(epochDay)), epochDay, today()), 0);
+  }
+
+  boolean add(long epochDay, int delta, int limit) {
+    var today = today();
+    if (epochDay < today || epochDay >= today + WINDOW_DAYS) {
+      return true;
+    }
+    var slot = slot(epochDay);
+    while (true) {
+      var current = slots.get(slot);
+      var count = count(current, epochDay, today);
+      if (count < 0) {
+        return false;
+      }
+      var next = Math.max(count + delta, 0);
+      if (delta > 0 && next > limit) {
+        return false;
+      }
+      if (slots.compareAndSet(slot, current, next == 0 ? 0 : (epochDay + 1) << 32 | next)) {
+        return true;
+      }
+    }
+  }
+
+  void clear() {
+    for (int i = 0; i < WINDOW_DAYS; i++) {
+      slots.set(i, 0);
+    }
+  }
+
+  static long today() {
+    var today = DayCounters.today;
+    if (System.currentTimeMillis() >= today.untilMillis()) {
+      DayCounters.today = today = Today.now();
+    }
+    return today.epochDay();
+  }
+
+  private static int count(long value, long epochDay, long today) {
+    var tag = (value >>> 32) - 1;
+    if (value == 0 || tag < today) {
+      return 0;
+    }
+    return tag == epochDay ? (int) value : -1;
+  }
+
+  private static int slot(long epochDay) {
+    return (int) Math.floorMod(epochDay, (long) WINDOW_DAYS);
+  }
+}
@@ -0,0 +1,139 @@
+package com.faex.bookings.service;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Single writer thread deciding queued commands in order and committing the accepted ones in grouped transactions
+class GroupCommitWriter {
+
+  private static final long POLL_MILLIS = 100;
+
+  private record Entry<T>(BookingCommand<T> command, CompletableFuture<T> future) {
+  }
+
+  private final BlockingQueue<Entry<?>> queue;
+  private final TransactionTemplate transactionTemplate;
+  private final int groupSize;
+  private final long offerTimeoutMillis;
+  private final Thread thread;
+  // submitters enqueue under the read lock, close() stops intake under the write lock, so nothing is enqueued after the final drain
+  private final ReadWriteLock intake = new ReentrantReadWriteLock();
+  private volatile boolean running = true;
+
+  GroupCommitWriter(TransactionTemplate transactionTemplate, int queueSize, int groupSize, long offerTimeoutMillis) {
+    this.queue = new ArrayBlockingQueue<>(queueSize);
+    this.transactionTemplate = transactionTemplate;
+    this.groupSize = groupSize;
+    this.offerTimeoutMillis = offerTimeoutMillis;
+    this.thread = new Thread(this::run, "booking-writer");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  <T> CompletableFuture<T> submit(BookingCommand<T> command) {
+    var future = new CompletableFuture<T>();
+    intake.readLock().lock();
+    try {
+      if (!running) {
+        future.completeExceptionally(new IllegalStateException("Booking writer stopped"));
+      } else if (!queue.offer(new Entry<>(command, future), offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        future.completeExceptionally(new IllegalStateException("Booking writer is busy"));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.completeExceptionally(e);
+    } finally {
+      intake.readLock().unlock();
+    }
+    return future;
+  }
+
+  // waits for the group in flight to commit rather than interrupting it; commands still queued are failed
+  void close() {
+    intake.writeLock().lock();
+    try {
+      running = false;
+    } finally {
+      intake.writeLock().unlock();
+    }
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    var group = new ArrayList<Entry<?>>(groupSize);
+    while (running) {
+      Entry<?> entry;
+      try {
+        entry = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        continue;
+      }
+      if (entry == null) {
+        continue;
+      }
+      group.add(entry);
+      queue.drainTo(group, groupSize - 1);
+      commit(decide(group));
+      group.clear();
+    }
+    for (Entry<?> entry; (entry = queue.poll()) != null; ) {
+      entry.future().completeExceptionally(new IllegalStateException("Booking writer stopped"));
+    }
+  }
+
+  private List<Entry<?>> decide(List<Entry<?>> group) {
+    var accepted = new ArrayList<Entry<?>>(group.size());
+    for (var entry : group) {
+      try {
+        entry.command().decide().run();
+        accepted.add(entry);
+      } catch (RuntimeException e) {
+        entry.future().completeExceptionally(e);
+      }
+    }
+    return accepted;
+  }
+
+  private void commit(List<Entry<?>> accepted) {
+    if (accepted.isEmpty()) {
+      return;
+    }
+    List<Object> results;
+    try {
+      results = transactionTemplate.execute(status -> accepted.stream().map(entry -> (Object) entry.command().write().get()).toList());
+    } catch (RuntimeException e) {
+      // one bad command must not fail the group: retry each in its own transaction
+      accepted.forEach(this::commit);
+      return;
+    }
+    for (int i = 0; i < accepted.size(); i++) {
+      complete(accepted.get(i), results.get(i));
+    }
+  }
+
+  private <T> void commit(Entry<T> entry) {
+    try {
+      entry.future().complete(transactionTemplate.execute(status -> entry.command().write().get()));
+    } catch (RuntimeException e) {
+      entry.command().release().run();
+      entry.future().completeExceptionally(e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void complete(Entry<T> entry, Object result) {
+    entry.future().complete((T) result);
+  }
+}
@@ -0,0 +1,171 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.orm.BookingEntity;
+import com.faex.bookings.orm.IdempotencyKeyEntity;
+import com.faex.bookings.orm.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Stored responses of keyed requests: a bounded LRU in front of the idempotency_key table, purged after a TTL; concurrent duplicates share one execution
+@Component
+public class IdempotencyKeys {
+
+  private record Response(String fingerprint, BookingEntity bookingEntity, long createdTime) {
+    BookingEntity replay(String fingerprint) {
+      if (!this.fingerprint.equals(fingerprint)) {
+        throw new IllegalArgumentException("Idempotency key was used for a different request");
+      }
+      return bookingEntity;
+    }
+  }
+
+  private record Execution(String fingerprint, CompletableFuture<BookingEntity> result) {
+    BookingEntity join(String fingerprint) {
+      if (!this.fingerprint.equals(fingerprint)) {
+        throw new IllegalArgumentException("Idempotency key was used for a different request");
+      }
+      try {
+        return result.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException cause ? cause : e;
+      }
+    }
+  }
+
+  private final IdempotencyKeyRepository idempotencyKeyRepository;
+  private final ObjectMapper objectMapper;
+  private final Map<String, Response> responses;
+  private final Map<String, Execution> executions = new ConcurrentHashMap<>();
+  private final long ttlMillis;
+
+  public IdempotencyKeys(IdempotencyKeyRepository idempotencyKeyRepository, ObjectMapper objectMapper,
+                         @Value("${bookings.idempotency.cache-size:10000}") int cacheSize, @Value("${bookings.idempotency.ttl-hours:24}") long ttlHours) {
+    this.idempotencyKeyRepository = idempotencyKeyRepository;
+    this.objectMapper = objectMapper;
+    this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+    this.responses = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Response> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+  // SHA-256 over the length-prefixed request fields, a format that does not depend on the JVM or the JSON mapper
+  public static String fingerprint(String operation, Booking booking) {
+    var canonical = new StringBuilder();
+    Stream.of(operation, String.valueOf(booking.getProperty()), booking.getDates().stream().map(String::valueOf).collect(Collectors.joining(",")),
+        booking.getEmail(), booking.getFullName(), booking.getHold())
+      .forEach(field -> canonical.append(field == null ? "-" : field.length() + ":" + field).append(';'));
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+      return String.format("%064x", new BigInteger(1, digest));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  // a key is honoured for at least the TTL; replaying a request after its key was purged runs it again
+  @Scheduled(fixedDelayString = "${bookings.idempotency.purge-interval-ms:600000}", initialDelayString = "${bookings.idempotency.purge-interval-ms:600000}")
+  public void purge() {
+    purge(System.currentTimeMillis() - ttlMillis);
+  }
+
+  void purge(long before) {
+    idempotencyKeyRepository.deleteAllByCreatedTimeLessThan(before);
+    synchronized (responses) {
+      responses.values().removeIf(response -> response.createdTime() < before);
+    }
+  }
+
+  public BookingEntity execute(String key, String fingerprint, Supplier<BookingEntity> action) {
+    if (key == null) {
+      return action.get();
+    }
+    var response = find(key);
+    if (response != null) {
+      return response.replay(fingerprint);
+    }
+    var execution = new Execution(fingerprint, new CompletableFuture<>());
+    var running = executions.putIfAbsent(key, execution);
+    if (running != null) {
+      return running.join(fingerprint);
+    }
+    try {
+      // a duplicate may have completed between the lookup and taking over the key
+      response = find(key);
+      var bookingEntity = response != null ? response.replay(fingerprint) : action.get();
+      remember(key, new Response(fingerprint, bookingEntity, System.currentTimeMillis()));
+      execution.result().complete(bookingEntity);
+      return bookingEntity;
+    } catch (RuntimeException e) {
+      execution.result().completeExceptionally(e);
+      throw e;
+    } finally {
+      executions.remove(key);
+    }
+  }
+
+  // called inside the transaction that produced the response, so both commit or neither does
+  void record(String key, String fingerprint, BookingEntity bookingEntity) {
+    if (key == null) {
+      return;
+    }
+    try {
+      idempotencyKeyRepository.save(IdempotencyKeyEntity.builder()
+        .id(key)
+        .fingerprint(fingerprint)
+        .response(objectMapper.writeValueAsString(bookingEntity))
+        .createdTime(System.currentTimeMillis())
+        .build());
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Response find(String key) {
+    synchronized (responses) {
+      var response = responses.get(key);
+      if (response != null) {
+        return response;
+      }
+    }
+    var response = idempotencyKeyRepository.findById(key).map(this::decode).orElse(null);
+    if (response != null) {
+      remember(key, response);
+    }
+    return response;
+  }
+
+  private void remember(String key, Response response) {
+    synchronized (responses) {
+      responses.put(key, response);
+    }
+  }
+
+  private Response decode(IdempotencyKeyEntity idempotencyKeyEntity) {
+    try {
+      return new Response(idempotencyKeyEntity.getFingerprint(), objectMapper.readValue(idempotencyKeyEntity.getResponse(), BookingEntity.class),
+        idempotencyKeyEntity.getCreatedTime());
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
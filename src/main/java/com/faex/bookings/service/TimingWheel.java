@@ -0,0 +1,140 @@
+package com.faex.bookings.service;
+
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel of 64-slot levels, each slot of a level spanning a full turn of the level below; not thread-safe
+final class TimingWheel<T> {
+
+  private static final int BITS = 6, SLOTS = 1 << BITS, MASK = SLOTS - 1, LEVELS = 4;
+  // the furthest deadline the top level can still tell apart from the current turn
+  private static final long HORIZON_TICKS = (long) MASK << (BITS * (LEVELS - 1));
+
+  static final class Timeout<T> {
+    private final T task;
+    private final long deadline;
+    private Timeout<T> previous, next;
+    private Slot<T> slot;
+
+    private Timeout(T task, long deadline) {
+      this.task = task;
+      this.deadline = deadline;
+    }
+  }
+
+  // doubly linked, so a cancelled timeout unlinks itself in O(1)
+  private static final class Slot<T> {
+    private Timeout<T> head;
+
+    void add(Timeout<T> timeout) {
+      timeout.slot = this;
+      timeout.previous = null;
+      timeout.next = head;
+      if (head != null) {
+        head.previous = timeout;
+      }
+      head = timeout;
+    }
+
+    void remove(Timeout<T> timeout) {
+      if (timeout.previous != null) {
+        timeout.previous.next = timeout.next;
+      } else {
+        head = timeout.next;
+      }
+      if (timeout.next != null) {
+        timeout.next.previous = timeout.previous;
+      }
+      timeout.slot = null;
+      timeout.previous = timeout.next = null;
+    }
+
+    Timeout<T> drain() {
+      var drained = head;
+      head = null;
+      return drained;
+    }
+  }
+
+  private final long tickMillis;
+  private final Slot<T>[][] levels;
+  private long tick;
+  private int size;
+
+  @SuppressWarnings("unchecked")
+  TimingWheel(long tickMillis, long nowMillis) {
+    this.tickMillis = tickMillis;
+    this.levels = new Slot[LEVELS][SLOTS];
+    for (var slots : levels) {
+      for (int i = 0; i < SLOTS; i++) {
+        slots[i] = new Slot<>();
+      }
+    }
+    this.tick = nowMillis / tickMillis;
+  }
+
+  int size() {
+    return size;
+  }
+
+  long getHorizonMillis() {
+    return HORIZON_TICKS * tickMillis;
+  }
+
+  Timeout<T> schedule(T task, long deadlineMillis) {
+    var deadline = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, tick + 1);
+    if (deadline - tick > HORIZON_TICKS) {
+      throw new IllegalArgumentException("Deadline is beyond the timing wheel's horizon");
+    }
+    var timeout = new Timeout<>(task, deadline);
+    place(timeout);
+    size++;
+    return timeout;
+  }
+
+  boolean cancel(Timeout<T> timeout) {
+    if (timeout.slot == null) {
+      return false;
+    }
+    timeout.slot.remove(timeout);
+    size--;
+    return true;
+  }
+
+  // moves tick by tick up to now; each tick cascades at most one slot per level and expires one slot
+  void advance(long nowMillis, Consumer<T> expired) {
+    var now = nowMillis / tickMillis;
+    while (tick < now) {
+      tick++;
+      for (int level = LEVELS - 1; level > 0; level--) {
+        if ((tick & ((1L << (BITS * level)) - 1)) == 0) {
+          var timeout = levels[level][(int) (tick >>> (BITS * level)) & MASK].drain();
+          while (timeout != null) {
+            var next = timeout.next;
+            place(timeout);
+            timeout = next;
+          }
+        }
+      }
+      var timeout = levels[0][(int) tick & MASK].drain();
+      while (timeout != null) {
+        var next = timeout.next;
+        timeout.slot = null;
+        timeout.previous = timeout.next = null;
+        size--;
+        expired.accept(timeout.task);
+        timeout = next;
+      }
+    }
+  }
+
+  // the lowest level whose current turn contains the deadline
+  private void place(Timeout<T> timeout) {
+    for (int level = 0; level < LEVELS; level++) {
+      var turn = BITS * (level + 1);
+      if (timeout.deadline >>> turn == tick >>> turn || level == LEVELS - 1) {
+        levels[level][(int) (timeout.deadline >>> (BITS * level)) & MASK].add(timeout);
+        return;
+      }
+    }
+  }
+}
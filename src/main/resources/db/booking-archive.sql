@@ -0,0 +1,18 @@
+-- Creates the booking_archive table the archiver moves cancelled and checked-out bookings into.
+-- Only needed where the schema outlives a restart (ddl-auto other than create/create-drop).
+
+CREATE TABLE booking_archive (
+  id BIGINT NOT NULL PRIMARY KEY,
+  version BIGINT NOT NULL,
+  property INTEGER NOT NULL,
+  created_time BIGINT NOT NULL,
+  updated_time BIGINT NOT NULL,
+  deleted_time BIGINT NOT NULL,
+  archived_time BIGINT NOT NULL,
+  email VARCHAR(255),
+  full_name VARCHAR(255),
+  check_in INTEGER NOT NULL,
+  check_out INTEGER NOT NULL,
+  status INTEGER
+);
+CREATE INDEX booking_archive_email_id ON booking_archive (email, id);
@@ -0,0 +1,6 @@
+-- Adds the last-update time the availability snapshot restore replays from, and its index, to an existing booking_date table.
+-- Existing rows stay NULL: no snapshot predates the column, so the first start after the migration scans the whole table.
+-- Only needed where the schema outlives a restart (ddl-auto other than create/create-drop).
+
+ALTER TABLE booking_date ADD COLUMN updated TIMESTAMP;
+CREATE INDEX idx_booking_date_updated ON booking_date (updated);
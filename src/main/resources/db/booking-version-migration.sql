@@ -0,0 +1,4 @@
+-- Adds the optimistic-locking version column to an existing booking table.
+-- Only needed where the schema outlives a restart (ddl-auto other than create/create-drop).
+
+ALTER TABLE booking_entity ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,24 @@
+-- Converts a schema that stored dates as ISO strings to epoch-day integers.
+-- Only needed where the schema outlives a restart (ddl-auto other than create/create-drop).
+
+ALTER TABLE booking_entity ADD COLUMN check_in_day INT;
+ALTER TABLE booking_entity ADD COLUMN check_out_day INT;
+UPDATE booking_entity SET
+  check_in_day = DATEDIFF(DAY, DATE '1970-01-01', CAST(check_in AS DATE)),
+  check_out_day = DATEDIFF(DAY, DATE '1970-01-01', CAST(check_out AS DATE));
+ALTER TABLE booking_entity DROP COLUMN check_in;
+ALTER TABLE booking_entity DROP COLUMN check_out;
+ALTER TABLE booking_entity ALTER COLUMN check_in_day RENAME TO check_in;
+ALTER TABLE booking_entity ALTER COLUMN check_out_day RENAME TO check_out;
+ALTER TABLE booking_entity ALTER COLUMN check_in SET NOT NULL;
+ALTER TABLE booking_entity ALTER COLUMN check_out SET NOT NULL;
+
+CREATE TABLE booking_date_epoch_day (
+  id INT NOT NULL PRIMARY KEY,
+  capacity INT NOT NULL,
+  booked INT NOT NULL
+);
+INSERT INTO booking_date_epoch_day (id, capacity, booked)
+  SELECT DATEDIFF(DAY, DATE '1970-01-01', CAST(id AS DATE)), capacity, booked FROM booking_date;
+DROP TABLE booking_date;
+ALTER TABLE booking_date_epoch_day RENAME TO booking_date;
@@ -0,0 +1,7 @@
+-- Replaces the 32-bit request hash of stored idempotency keys with the hex SHA-256 of the canonical request.
+-- Old fingerprints cannot be converted, so stored keys are dropped: a retry of a request made before the migration runs again.
+-- Only needed where the schema outlives a restart (ddl-auto other than create/create-drop).
+
+DELETE FROM idempotency_key;
+ALTER TABLE idempotency_key ALTER COLUMN fingerprint VARCHAR(64) NOT NULL;
+CREATE INDEX idx_idempotency_key_created_time ON idempotency_key (created_time);
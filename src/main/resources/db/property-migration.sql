@@ -0,0 +1,8 @@
+-- Adds the property dimension to an existing schema: every existing booking and date belongs to property 0.
+-- Only needed where the schema outlives a restart (ddl-auto other than create/create-drop).
+
+ALTER TABLE booking_entity ADD COLUMN property INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE booking_date ALTER COLUMN id RENAME TO date;
+ALTER TABLE booking_date ADD COLUMN property INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE booking_date DROP PRIMARY KEY;
+ALTER TABLE booking_date ADD PRIMARY KEY (date, property);
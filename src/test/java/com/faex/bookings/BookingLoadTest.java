@@ -0,0 +1,173 @@
+package com.faex.bookings;
+
+import com.faex.bookings.orm.BookingDateEntity;
+import com.faex.bookings.orm.BookingDateRepository;
+import com.faex.bookings.orm.BookingEntity;
+import com.faex.bookings.orm.BookingRepository;
+import com.faex.bookings.rest.BookingRequestBody;
+import com.faex.bookings.service.BookingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// In-process load generator against the real HTTP stack, run with the load profile; scale with -Dload.clients and -Dload.operations
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class BookingLoadTest {
+
+	@Test
+	public void testReadHeavy() throws Exception {
+		run("read-heavy", clients, operations, 0.95, 4);
+	}
+
+	@Test
+	public void testWriteContention() throws Exception {
+		run("write-contention", clients, operations, 0.2, 2);
+	}
+
+	private void run(String scenario, int clients, int operations, double readRatio, int hotNights) throws Exception {
+		var latencies = new ConcurrentHashMap<String, List<Long>>();
+		var statuses = new ConcurrentHashMap<String, AtomicInteger>();
+		var errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		var start = new CountDownLatch(1);
+		var done = new CountDownLatch(clients);
+		for (int c = 0; c < clients; c++) {
+			new Thread(() -> {
+				try {
+					start.await();
+					var owned = new ArrayList<String>();
+					for (int i = 0; i < operations; i++) {
+						var random = ThreadLocalRandom.current();
+						if (random.nextDouble() < readRatio) {
+							call("GET", "/dates", null, latencies, statuses);
+						} else if (owned.isEmpty() || random.nextBoolean()) {
+							var response = call("POST", "/bookings", body(1 + random.nextInt(hotNights), 1), latencies, statuses);
+							if (response.statusCode() == 201) {
+								owned.add(String.valueOf(mapper.readValue(response.body(), BookingEntity.class).getId()));
+							}
+						} else if (random.nextBoolean()) {
+							call("PUT", "/bookings/" + owned.get(0), body(1 + random.nextInt(hotNights), 1), latencies, statuses);
+						} else {
+							call("DELETE", "/bookings/" + owned.remove(0), null, latencies, statuses);
+						}
+					}
+				} catch (Throwable e) {
+					errors.add(e);
+				} finally {
+					done.countDown();
+				}
+			}).start();
+		}
+		var begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		var elapsed = System.nanoTime() - begin;
+		assertThat(errors).isEmpty();
+		assertInvariants();
+		var counts = statuses.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, o -> o.getValue().get()));
+		print(scenario, elapsed, latencies, counts);
+	}
+
+	private HttpResponse<String> call(String method, String path, Object body, Map<String, List<Long>> latencies,
+	                                  Map<String, AtomicInteger> statuses) throws Exception {
+		var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+			.header("Content-Type", "application/json")
+			.method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+			.build();
+		var begin = System.nanoTime();
+		var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		latencies.computeIfAbsent(method, o -> Collections.synchronizedList(new ArrayList<>())).add(System.nanoTime() - begin);
+		statuses.computeIfAbsent(method + " " + response.statusCode(), o -> new AtomicInteger()).incrementAndGet();
+		return response;
+	}
+
+	private void assertInvariants() {
+		var covering = new HashMap<Integer, Integer>();
+		bookingRepository.findAll().stream()
+			.filter(booking -> booking.getStatus() == BookingEntity.Status.CONFIRMED)
+			.forEach(booking -> {
+				for (int date = booking.getCheckIn(); date < booking.getCheckOut(); date++) {
+					covering.merge(date, 1, Integer::sum);
+				}
+			});
+		var dates = dateRepository.findAll();
+		// no night double-booked
+		assertThat(dates).allMatch(date -> date.getBooked() <= date.getCapacity());
+		// no orphaned booking_date counts and no confirmed night missing from booking_date
+		assertThat(dates.stream().filter(date -> date.getBooked() > 0)
+			.collect(Collectors.toMap(BookingDateEntity::getDate, BookingDateEntity::getBooked))).isEqualTo(covering);
+	}
+
+	private static void print(String scenario, long elapsed, Map<String, List<Long>> latencies, Map<String, Integer> statuses) {
+		var total = latencies.values().stream().mapToInt(List::size).sum();
+		var posts = statuses.entrySet().stream().filter(o -> o.getKey().startsWith("POST")).mapToInt(Map.Entry::getValue).sum();
+		var conflicts = statuses.getOrDefault("POST 400", 0);
+		System.out.printf("%s: %d requests, %.0f req/s, conflict rate %.1f%%, statuses %s%n", scenario, total, total * 1e9 / elapsed,
+			posts == 0 ? 0.0 : 100.0 * conflicts / posts, statuses);
+		latencies.forEach((method, values) -> {
+			var sorted = values.stream().sorted().toList();
+			System.out.printf("  %-6s n=%-5d p50 %7.2f ms  p99 %7.2f ms  p999 %7.2f ms%n", method, sorted.size(),
+				percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999));
+		});
+	}
+
+	private static double percentile(List<Long> sorted, double percentile) {
+		return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(sorted.size() * percentile) - 1)) / 1e6;
+	}
+
+	private BookingRequestBody body(int night, int nights) {
+		return BookingRequestBody.builder()
+			.fullName("Tester")
+			.email("tester@testing.test")
+			.checkIn(t0.plusDays(night).toString())
+			.checkOut(t0.plusDays(night + nights).toString())
+			.build();
+	}
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private BookingService bookingService;
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@Autowired
+	private BookingDateRepository dateRepository;
+
+	private final int clients = Integer.getInteger("load.clients", 16);
+	private final int operations = Integer.getInteger("load.operations", 50);
+	private final HttpClient client = HttpClient.newHttpClient();
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final LocalDate t0 = LocalDate.now(ZoneId.of("Atlantic/Bermuda")).plusDays(1);
+
+	@BeforeEach
+	public void setUp() {
+		bookingService.deleteDates();
+		bookingRepository.deleteAllInBatch();
+	}
+}
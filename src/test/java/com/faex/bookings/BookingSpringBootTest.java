@@ -4,26 +4,43 @@ import com.faex.bookings.orm.BookingEntity;
 import com.faex.bookings.rest.Availability;
 import com.faex.bookings.rest.AvailabilityDate;
 import com.faex.bookings.rest.BookingRequestBody;
+import com.faex.bookings.rest.HoldRequestBody;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -37,13 +54,37 @@ public class BookingSpringBootTest {
 
 	@Test
 	public void testCreateBookingConcurrently() throws Exception {
-		var status1 = new AtomicInteger(0);
-		var status2 = new AtomicInteger(0);
-		new Thread(() -> postBookingWithConsumer(status1::set)).start();
-		new Thread(() -> postBookingWithConsumer(status2::set)).start();
-		Thread.sleep(1000);
-		var statuses = List.of(status1.get(), status2.get());
-		Assertions.assertTrue(statuses.contains(400) && statuses.contains(201));
+		var clients = 8;
+		var start = new CountDownLatch(1);
+		var executor = Executors.newFixedThreadPool(clients);
+		try {
+			var posts = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < clients; i++) {
+				posts.add(executor.submit(() -> {
+					start.await();
+					return postBooking().andReturn().getResponse().getStatus();
+				}));
+			}
+			start.countDown();
+			var statuses = new ArrayList<Integer>();
+			for (var post : posts) {
+				statuses.add(post.get(30, TimeUnit.SECONDS));
+			}
+			// the same nights at capacity 1: exactly one post wins, every other one is rejected
+			assertThat(statuses).containsOnly(201, 400);
+			assertThat(Collections.frequency(statuses, 201)).isEqualTo(1);
+		} finally {
+			executor.shutdownNow();
+			mockMvc.perform(delete("/dates"));
+		}
+	}
+
+	@Test
+	public void testCreateBookingIsoDates() throws Exception {
+		postBooking()
+			.andExpect(status().isCreated())
+			.andExpect(jsonPath("$.checkIn").value(t0.plusDays(1).toString()))
+			.andExpect(jsonPath("$.checkOut").value(t0.plusDays(4).toString()));
 		mockMvc.perform(delete("/dates")); // ensure cleanup
 	}
 
@@ -77,6 +118,31 @@ public class BookingSpringBootTest {
 		);
 	}
 
+	@Test
+	public void testCreateBookingOutsideWindow() throws Exception {
+		postBookingWithBadRequest(builder -> builder
+			.fullName("Tester")
+			.email("tester@testing.test")
+			.checkIn(now.toString())
+			.checkOut(t0.toString())
+		);
+		postBookingWithBadRequest(builder -> builder
+			.fullName("Tester")
+			.email("tester@testing.test")
+			.checkIn(t1.plusDays(1).toString())
+			.checkOut(t1.plusDays(2).toString())
+		);
+	}
+
+	@Test
+	public void testCreateBookingAfterConflictOk() throws Exception {
+		postBookingWithHandler(o -> {});
+		postBooking().andExpect(status().isBadRequest());
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+		postBookingWithHandler(o -> {});
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
 	@Test
 	public void testCreateBookingWithoutEmail() throws Exception {
 		postBookingWithBadRequest(builder -> builder
@@ -96,6 +162,48 @@ public class BookingSpringBootTest {
 		);
 	}
 
+	@Test
+	public void testCreateBookingsBatch() throws Exception {
+		var builder = BookingRequestBody.builder().fullName("Tester").email("tester@testing.test");
+		mockMvc.perform(post("/bookings/batch")
+			.contentType(MediaType.APPLICATION_JSON)
+			.content(getValueAsString(List.of(
+				builder.checkIn(t0.plusDays(1).toString()).checkOut(t0.plusDays(3).toString()).build(),
+				builder.checkIn(t0.plusDays(2).toString()).checkOut(t0.plusDays(4).toString()).build(), // overlaps the first item
+				builder.checkIn(t0.plusDays(4).toString()).checkOut(t0.plusDays(5).toString()).build(),
+				builder.checkIn(t0.plusDays(4).toString()).checkOut(t0.plusDays(4).toString()).build()))))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].status").value("CREATED"))
+			.andExpect(jsonPath("$[0].id").isNumber())
+			.andExpect(jsonPath("$[1].status").value("CONFLICT"))
+			.andExpect(jsonPath("$[2].status").value("CREATED"))
+			.andExpect(jsonPath("$[3].status").value("INVALID"));
+		mockMvc.perform(get("/dates?from=" + t0.plusDays(1) + "&to=" + t0.plusDays(5)))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.dates[*].status").value(contains("UNAVAILABLE", "UNAVAILABLE", "AVAILABLE", "UNAVAILABLE")));
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
+	@Test
+	public void testCreateBookingIdempotent() throws Exception {
+		var key = UUID.randomUUID().toString();
+		var body = getValueAsString(BookingRequestBody.builder()
+			.fullName("Tester")
+			.email("tester@testing.test")
+			.checkIn(t0.plusDays(1).toString())
+			.checkOut(t0.plusDays(4).toString())
+			.build());
+		var created = mockMvc.perform(post("/bookings").header("Idempotency-Key", key).contentType(MediaType.APPLICATION_JSON).content(body))
+			.andExpect(status().isCreated())
+			.andReturn().getResponse().getContentAsString();
+		mockMvc.perform(post("/bookings").header("Idempotency-Key", key).contentType(MediaType.APPLICATION_JSON).content(body))
+			.andExpect(status().isCreated())
+			.andExpect(content().json(created, true));
+		mockMvc.perform(post("/bookings").header("Idempotency-Key", key).contentType(MediaType.APPLICATION_JSON).content(body.replace("Tester\"", "Other\"")))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
 	@Test
 	public void testUpdateBookingOk() throws Exception {
 		postBookingWithHandler(entity ->
@@ -111,6 +219,28 @@ public class BookingSpringBootTest {
 		mockMvc.perform(delete("/dates")); // ensure cleanup
 	}
 
+	@Test
+	public void testUpdateBookingIfMatch() throws Exception {
+		postBookingWithHandler(entity -> {
+			var body = getValueAsString(BookingRequestBody.builder()
+				.fullName("Tester")
+				.email("tester@testing.test")
+				.checkIn(t0.plusDays(1).toString())
+				.checkOut(t0.plusDays(2).toString())
+				.build());
+			mockMvc.perform(put("/bookings/" + entity.getId()).header(HttpHeaders.IF_MATCH, "\"0\"").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+			mockMvc.perform(put("/bookings/" + entity.getId()).header(HttpHeaders.IF_MATCH, "\"0\"").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isPreconditionFailed());
+			mockMvc.perform(delete("/bookings/" + entity.getId()).header(HttpHeaders.IF_MATCH, "\"0\""))
+				.andExpect(status().isPreconditionFailed());
+			mockMvc.perform(delete("/bookings/" + entity.getId()).header(HttpHeaders.IF_MATCH, "\"1\""))
+				.andExpect(status().isNoContent());
+		});
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
 	@Test
 	public void testUpdateBookingNotFound() throws Exception {
 		mockMvc.perform(put("/bookings/123")
@@ -124,6 +254,51 @@ public class BookingSpringBootTest {
 			.andExpect(status().isBadRequest());
 	}
 
+	@Test
+	public void testGetBooking() throws Exception {
+		postBookingWithHandler(entity -> mockMvc.perform(get("/bookings/" + entity.getId()))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+			.andExpect(jsonPath("$.status").value("CONFIRMED"))
+			.andExpect(jsonPath("$.checkIn").value(t0.plusDays(1).toString()))
+			.andExpect(jsonPath("$.fullName").doesNotExist()));
+		mockMvc.perform(get("/bookings/" + Long.MAX_VALUE))
+			.andExpect(status().isNotFound());
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
+	@Test
+	public void testFindBookingsByKeyset() throws Exception {
+		var email = UUID.randomUUID() + "@testing.test";
+		for (int i = 0; i < 3; i++) {
+			var night = t0.plusDays(i);
+			postBooking(builder -> builder
+				.fullName("Tester")
+				.email(email)
+				.checkIn(night.toString())
+				.checkOut(night.plusDays(1).toString()))
+				.andExpect(status().isCreated());
+		}
+		var first = mapper.readTree(mockMvc.perform(get("/bookings?email=" + email + "&limit=2"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.bookings.length()").value(2))
+			.andExpect(jsonPath("$.next").isNumber())
+			.andReturn().getResponse().getContentAsString());
+		var next = first.get("next").asLong();
+		mockMvc.perform(delete("/bookings/" + next));
+		mockMvc.perform(get("/bookings?email=" + email + "&limit=2&after=" + next))
+			.andExpect(jsonPath("$.bookings.length()").value(1))
+			.andExpect(jsonPath("$.bookings[0].id").value(greaterThan((int) next)))
+			.andExpect(jsonPath("$.next").doesNotExist());
+		mockMvc.perform(get("/bookings?email=" + email + "&status=deleted"))
+			.andExpect(jsonPath("$.bookings[*].id").value(contains((int) next)));
+		mockMvc.perform(get("/bookings?status=unknown"))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/bookings?limit=2"))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
 	@Test
 	public void testDeleteBookingOk() throws Exception {
 		postBookingWithHandler(entity -> mockMvc.perform(delete("/bookings/" + entity.getId()))
@@ -161,6 +336,7 @@ public class BookingSpringBootTest {
 				.dates(List.of(AvailabilityDate.builder()
 					.date(String.valueOf(t0))
 					.status(AvailabilityDate.Status.AVAILABLE)
+					.remaining(1)
 					.build()))
 				.build())));
 	}
@@ -184,12 +360,16 @@ public class BookingSpringBootTest {
 			.from(String.valueOf(t0))
 			.to(String.valueOf(t1))
 			.count(dates.size())
-			.dates(dates.stream().map(availabilityDate -> AvailabilityDate.builder()
-				.date(availabilityDate.getDate())
-				.status(availabilityDate.getDate().equals(date1)
+			.dates(dates.stream().map(availabilityDate -> {
+				var booked = availabilityDate.getDate().equals(date1)
 					|| availabilityDate.getDate().equals(date2)
-					|| availabilityDate.getDate().equals(date3) ? AvailabilityDate.Status.UNAVAILABLE : AvailabilityDate.Status.AVAILABLE)
-				.build()).toList())
+					|| availabilityDate.getDate().equals(date3);
+				return AvailabilityDate.builder()
+					.date(availabilityDate.getDate())
+					.status(booked ? AvailabilityDate.Status.UNAVAILABLE : AvailabilityDate.Status.AVAILABLE)
+					.remaining(booked ? 0 : 1)
+					.build();
+			}).toList())
 			.build());
 		mockMvc.perform(get("/dates?from=" + t0 + "&to=" + t1))
 			.andExpect(status().isOk())
@@ -197,6 +377,178 @@ public class BookingSpringBootTest {
 		mockMvc.perform(delete("/dates")); // ensure cleanup
 	}
 
+	@Test
+	public void testDeletedBookingDatesAvailable() throws Exception {
+		postBookingWithHandler(entity -> mockMvc.perform(delete("/bookings/" + entity.getId()))
+			.andExpect(status().isNoContent()));
+		mockMvc.perform(get("/dates?from=" + t0 + "&to=" + t1))
+			.andExpect(status().isOk())
+			.andExpect(content().json(availability));
+	}
+
+	@Test
+	public void testAvailableDatesNotModified() throws Exception {
+		var eTag = mockMvc.perform(get("/dates"))
+			.andExpect(status().isOk())
+			.andExpect(header().exists(HttpHeaders.ETAG))
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		mockMvc.perform(get("/dates").header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isNotModified())
+			.andExpect(content().string(""));
+		mockMvc.perform(get("/dates?from=" + t0.plusDays(1)).header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isOk());
+		postBookingWithHandler(o -> {});
+		mockMvc.perform(get("/dates").header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
+	@Test
+	public void testAvailableDatesCachedUntilRangeChanges() throws Exception {
+		var range = "/dates?from=" + t0.plusDays(10) + "&to=" + t0.plusDays(20);
+		var eTag = mockMvc.perform(get(range))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		postBookingWithHandler(o -> {});
+		mockMvc.perform(get(range).header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isNotModified());
+		postBooking(builder -> builder
+			.fullName("Tester")
+			.email("tester@testing.test")
+			.checkIn(t0.plusDays(12).toString())
+			.checkOut(t0.plusDays(13).toString()))
+			.andExpect(status().isCreated());
+		mockMvc.perform(get(range).header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.dates[2].status").value("UNAVAILABLE"));
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
+	@Test
+	public void testHoldConvertsToBooking() throws Exception {
+		var hold = mockMvc.perform(post("/holds")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(getValueAsString(HoldRequestBody.builder()
+					.checkIn(t0.plusDays(1).toString())
+					.checkOut(t0.plusDays(4).toString())
+					.build())))
+			.andExpect(status().isCreated())
+			.andExpect(jsonPath("$.checkIn").value(t0.plusDays(1).toString()))
+			.andExpect(jsonPath("$.expiresAt").value(greaterThan(System.currentTimeMillis())))
+			.andReturn().getResponse().getContentAsString();
+		var id = mapper.readTree(hold).get("id").asText();
+		postBookingWithBadRequest(builder -> builder
+			.fullName("Tester")
+			.email("tester@testing.test")
+			.checkIn(t0.plusDays(1).toString())
+			.checkOut(t0.plusDays(2).toString()));
+		postBooking(builder -> builder
+			.fullName("Tester")
+			.email("tester@testing.test")
+			.checkIn(t0.plusDays(1).toString())
+			.checkOut(t0.plusDays(4).toString())
+			.hold(id))
+			.andExpect(status().isCreated());
+		mockMvc.perform(delete("/holds/" + id))
+			.andExpect(status().isNotFound());
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
+	@Test
+	public void testAvailableDatesCompactFormats() throws Exception {
+		var range = "/dates?from=" + t0.plusDays(10) + "&to=" + t0.plusDays(20);
+		postBooking(builder -> builder
+			.fullName("Tester")
+			.email("tester@testing.test")
+			.checkIn(t0.plusDays(12).toString())
+			.checkOut(t0.plusDays(13).toString()))
+			.andExpect(status().isCreated());
+		var eTag = mockMvc.perform(get(range + "&format=ranges"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.count").value(10))
+			.andExpect(jsonPath("$.ranges[*].from").value(contains(t0.plusDays(10).toString(), t0.plusDays(12).toString(), t0.plusDays(13).toString())))
+			.andExpect(jsonPath("$.ranges[*].to").value(contains(t0.plusDays(12).toString(), t0.plusDays(13).toString(), t0.plusDays(20).toString())))
+			.andExpect(jsonPath("$.ranges[*].status").value(contains("AVAILABLE", "UNAVAILABLE", "AVAILABLE")))
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		// days 0, 1 and 3-9 available: 0b11111011, 0b00000011
+		mockMvc.perform(get(range + "&format=bitmap").header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.count").value(10))
+			.andExpect(jsonPath("$.bitmap").value("+wM="));
+		mockMvc.perform(get(range + "&format=ranges").header(HttpHeaders.IF_NONE_MATCH, eTag))
+			.andExpect(status().isNotModified());
+		mockMvc.perform(get(range + "&format=runs"))
+			.andExpect(status().isBadRequest());
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
+	@Test
+	public void testStreamAvailability() throws Exception {
+		var stream = mockMvc.perform(get("/dates/stream"))
+			.andExpect(request().asyncStarted())
+			.andReturn().getResponse();
+		awaitContent(stream, "event:snapshot");
+		var version = stream.getContentAsString().replaceAll("(?s)^id:(\\d+).*", "$1");
+		postBookingWithHandler(o -> {});
+		awaitContent(stream, "{\"date\":\"" + t0.plusDays(1) + "\",\"status\":\"UNAVAILABLE\",\"remaining\":0}");
+		var resumed = mockMvc.perform(get("/dates/stream?since=" + version))
+			.andExpect(request().asyncStarted())
+			.andReturn().getResponse();
+		awaitContent(resumed, "event:changes");
+		Assertions.assertFalse(resumed.getContentAsString().contains("event:snapshot"));
+		var expired = mockMvc.perform(get("/dates/stream").header("Last-Event-ID", "1"))
+			.andExpect(request().asyncStarted())
+			.andReturn().getResponse();
+		awaitContent(expired, "event:snapshot");
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		var conflicts = rejections("conflict");
+		var invalid = rejections("invalid");
+		var errors = rejections("error");
+		postBookingWithHandler(o -> {});
+		postBooking().andExpect(status().isBadRequest());
+		assertThat(rejections("conflict")).isEqualTo(conflicts + 1);
+		assertThat(rejections("invalid")).isEqualTo(invalid);
+		postBookingWithBadRequest(builder -> builder
+			.fullName("Tester")
+			.email("tester@testing.test")
+			.checkIn(t0.toString())
+			.checkOut(t0.toString())
+		);
+		assertThat(rejections("conflict")).isEqualTo(conflicts + 1);
+		assertThat(rejections("invalid")).isEqualTo(invalid + 1);
+		assertThat(rejections("error")).isEqualTo(errors);
+		mockMvc.perform(get("/actuator/metrics/bookings.operation?tag=operation:create&tag=phase:write"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.measurements[?(@.statistic == 'COUNT')].value", contains(greaterThan(0.0))));
+		mockMvc.perform(get("/actuator/metrics/bookings.rejections?tag=operation:create&tag=reason:conflict"))
+			.andExpect(status().isOk());
+		mockMvc.perform(get("/actuator/metrics/bookings.rejections?tag=operation:create&tag=reason:invalid"))
+			.andExpect(status().isOk());
+		mockMvc.perform(get("/actuator/metrics/bookings.nights.booked"))
+			.andExpect(jsonPath("$.measurements[0].value").value(3.0));
+		mockMvc.perform(delete("/dates")); // ensure cleanup
+	}
+
+	@Test
+	public void testUnknownPropertyIsRejected() throws Exception {
+		mockMvc.perform(get("/dates?property=7"))
+			.andExpect(status().isBadRequest());
+		postBooking(builder -> builder
+			.property(7)
+			.fullName("Tester")
+			.email("tester@testing.test")
+			.checkIn(t0.toString())
+			.checkOut(t0.plusDays(1).toString())
+		).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/dates?property=0"))
+			.andExpect(status().isOk());
+	}
+
 	@Test
 	public void test() throws Exception {
 		mockMvc.perform(get("/test"))
@@ -207,14 +559,29 @@ public class BookingSpringBootTest {
 	@Autowired
 	private MockMvc mockMvc;
 
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	private final ObjectMapper mapper = new ObjectMapper();
 	private final ZoneId zoneId = ZoneId.of("Atlantic/Bermuda");
 	private final LocalDate now = LocalDate.now(zoneId);
 	private final LocalDate t0 = now.plusDays(1);
 	private final LocalDate t1 = now.plusMonths(1);
-	private final List<AvailabilityDate> dates = t0.datesUntil(t1).map(o -> AvailabilityDate.builder().date(String.valueOf(o)).status(AvailabilityDate.Status.AVAILABLE).build()).toList();
+	private final List<AvailabilityDate> dates = t0.datesUntil(t1).map(o -> AvailabilityDate.builder().date(String.valueOf(o)).status(AvailabilityDate.Status.AVAILABLE).remaining(1).build()).toList();
 	private final String availability = getValueAsString(Availability.builder().from(String.valueOf(t0)).to(String.valueOf(t1)).count(dates.size()).dates(dates).build());
 
+	private double rejections(String reason) {
+		var counter = meterRegistry.find("bookings.rejections").tag("operation", "create").tag("reason", reason).counter();
+		return counter == null ? 0 : counter.count();
+	}
+
+	private void awaitContent(MockHttpServletResponse response, String content) throws Exception {
+		for (int i = 0; i < 100 && !response.getContentAsString().contains(content); i++) {
+			Thread.sleep(50);
+		}
+		Assertions.assertTrue(response.getContentAsString().contains(content), content);
+	}
+
 	@SneakyThrows(JsonProcessingException.class)
 	private <T> String getValueAsString(T value) {
 		return mapper.writeValueAsString(value);
@@ -251,10 +618,4 @@ public class BookingSpringBootTest {
 			.andDo(o -> handler.handle(mapper.readValue(o.getResponse().getContentAsString(), BookingEntity.class)))
 			.andExpect(status().isCreated());
 	}
-
-	@SneakyThrows
-	private void postBookingWithConsumer(Consumer<Integer> consumer) {
-		postBooking()
-			.andDo(o -> consumer.accept(o.getResponse().getStatus()));
-	}
 }
\ No newline at end of file
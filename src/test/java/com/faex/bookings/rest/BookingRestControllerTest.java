@@ -1,20 +1,48 @@
 package com.faex.bookings.rest;
 
 import com.faex.bookings.rest.BookingRestController;
+import com.faex.bookings.service.BookingService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 public class BookingRestControllerTest {
 
 	@Autowired
 	private BookingRestController controller;
 
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockBean
+	private BookingService bookingService;
+
 	@Test
 	public void contextLoads() {
 		assertThat(controller).isNotNull();
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testOptimisticLockingFailureIsPreconditionFailedOnlyWithIfMatch() throws Exception {
+		doThrow(new ObjectOptimisticLockingFailureException("BookingEntity", "1"))
+			.when(bookingService).deleteBooking(eq("1"), any());
+		mockMvc.perform(delete("/bookings/1").header(HttpHeaders.IF_MATCH, "\"0\""))
+			.andExpect(status().isPreconditionFailed());
+		mockMvc.perform(delete("/bookings/1"))
+			.andExpect(status().isBadRequest());
+	}
+}
@@ -0,0 +1,70 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.orm.BookingDateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static com.faex.bookings.service.TestBookings.T0;
+import static com.faex.bookings.service.TestBookings.booking;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "bookings.snapshot.path=target/availability-test.snapshot")
+public class AvailabilitySnapshotTest {
+
+	@Test
+	public void testRestoreSnapshotAndReplayLaterChanges() throws Exception {
+		bookingService.createBooking(booking(1));
+		availabilityIndex.writeSnapshot();
+		Thread.sleep(10);
+		bookingService.createBooking(booking(2));
+		var restoring = new AvailabilitySnapshot(dateRepository, path.toString(), "update", 0);
+		assertThat(restoring.load().get(AvailabilityIndex.DEFAULT_PROPERTY)).containsEntry(T0 + 1, 1).containsEntry(T0 + 2, 1);
+		bookingService.deleteDates();
+		assertThat(Files.exists(path)).isFalse();
+		assertThat(restoring.load()).isEmpty();
+	}
+
+	@Test
+	public void testNoSnapshotWhileDatesAreDeleted() throws Exception {
+		bookingService.createBooking(booking(1));
+		// a deletion in flight: its counts are still in the index until it commits
+		availabilityIndex.discardSnapshot();
+		availabilityIndex.writeSnapshot();
+		assertThat(Files.exists(path)).isFalse();
+		availabilityIndex.resumeSnapshots();
+		availabilityIndex.writeSnapshot();
+		assertThat(Files.exists(path)).isTrue();
+	}
+
+	@Test
+	public void testSnapshotFormat() throws Exception {
+		var snapshot = new AvailabilitySnapshot(dateRepository, path.toString(), "update", 0);
+		snapshot.write(42, Map.of(3, Map.of(T0, 1)));
+		// header of magic, format, version, taken-at and count, then one (property, epoch-day, booked) record
+		assertThat(Files.size(path)).isEqualTo(28 + 12);
+		Files.write(path, new byte[] {1, 2, 3});
+		assertThat(snapshot.load()).isEmpty(); // unreadable snapshots fall back to scanning booking_date
+	}
+
+	@Autowired
+	private BookingService bookingService;
+
+	@Autowired
+	private AvailabilityIndex availabilityIndex;
+
+	@Autowired
+	private BookingDateRepository dateRepository;
+
+	private final Path path = Path.of("target/availability-test.snapshot");
+
+	@AfterEach
+	public void tearDown() {
+		bookingService.deleteDates();
+	}
+}
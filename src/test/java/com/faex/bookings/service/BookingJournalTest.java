@@ -0,0 +1,119 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.orm.BookingEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static com.faex.bookings.service.TestBookings.T0;
+import static com.faex.bookings.service.TestBookings.booking;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class BookingJournalTest {
+	private static final String JOURNAL_PATH = "target/journal-" + UUID.randomUUID(); // a fresh journal per run, so it holds only this run's events
+
+	@DynamicPropertySource
+	static void journalPath(DynamicPropertyRegistry registry) {
+		registry.add("bookings.journal.path", () -> JOURNAL_PATH);
+	}
+
+	@Test
+	public void testJournalRecordsBookingLifecycle() throws Exception {
+		var bookingEntity = bookingService.createBooking(booking(1, 2));
+		var id = String.valueOf(bookingEntity.getId());
+		bookingService.updateBooking(id, booking(2, 3));
+		bookingService.deleteBooking(id);
+		var events = awaitEvents(bookingEntity.getId(), 3);
+		assertThat(events).extracting(BookingJournal.Event::type)
+			.containsExactly(BookingJournal.Type.CREATED, BookingJournal.Type.UPDATED, BookingJournal.Type.CANCELLED);
+		assertThat(events).extracting(BookingJournal.Event::checkIn).containsExactly(T0 + 1, T0 + 2, T0 + 2);
+		assertThat(events).extracting(BookingJournal.Event::version).containsExactly(0L, 1L, 2L);
+		assertThat(events.get(0).email()).isEqualTo("tester@testing.test");
+	}
+
+	@Test
+	public void testSegmentsRollAndTornTailIsCutOff(@TempDir Path directory) throws Exception {
+		var journal = new BookingJournal(directory.toString(), 256, 4);
+		for (int i = 0; i < 10; i++) {
+			assertThat(journal.append(BookingJournal.Type.CREATED, entity(i)).get()).isEqualTo(i + 1);
+		}
+		journal.close();
+		var segments = segments(directory);
+		assertThat(segments).hasSizeGreaterThan(1);
+		Files.write(segments.get(segments.size() - 1), new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+		var reopened = new BookingJournal(directory.toString(), 256, 4);
+		assertThat(reopened.append(BookingJournal.Type.CANCELLED, entity(10)).get()).isEqualTo(11);
+		reopened.close();
+		assertThat(reopened.append(BookingJournal.Type.CANCELLED, entity(11))).isCompletedExceptionally();
+		var events = new ArrayList<BookingJournal.Event>();
+		reopened.replay(5, events::add);
+		assertThat(events).extracting(BookingJournal.Event::sequence).containsExactly(5L, 6L, 7L, 8L, 9L, 10L, 11L);
+		assertThat(events.get(6).type()).isEqualTo(BookingJournal.Type.CANCELLED);
+
+		// tailing picks up where the previous read stopped instead of decoding the segments again
+		var tailed = new ArrayList<BookingJournal.Event>();
+		var position = reopened.tail(reopened.position(5), tailed::add);
+		assertThat(tailed).extracting(BookingJournal.Event::sequence).endsWith(5L, 6L, 7L, 8L, 9L, 10L, 11L);
+		tailed.clear();
+		assertThat(reopened.tail(position, tailed::add)).isEqualTo(position);
+		assertThat(tailed).isEmpty();
+	}
+
+	@Autowired
+	private BookingService bookingService;
+
+	@Autowired
+	private BookingJournal bookingJournal;
+
+	@AfterEach
+	public void tearDown() {
+		bookingService.deleteDates();
+	}
+
+	private List<BookingJournal.Event> awaitEvents(long bookingId, int count) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			var events = new ArrayList<BookingJournal.Event>();
+			bookingJournal.replay(0, event -> {
+				if (event.bookingId() == bookingId) {
+					events.add(event);
+				}
+			});
+			if (events.size() >= count) {
+				return events;
+			}
+			Thread.sleep(50);
+		}
+		throw new AssertionError("Journal events of booking " + bookingId + " were not written");
+	}
+
+	private static List<Path> segments(Path directory) throws Exception {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.sorted().toList();
+		}
+	}
+
+	private static BookingEntity entity(long id) {
+		return BookingEntity.builder()
+			.id(id)
+			.status(BookingEntity.Status.CONFIRMED)
+			.checkIn(1)
+			.checkOut(2)
+			.email("tester@testing.test")
+			.fullName("Tester")
+			.build();
+	}
+}
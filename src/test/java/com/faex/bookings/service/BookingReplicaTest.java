@@ -0,0 +1,119 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.orm.BookingEntity;
+import com.faex.bookings.orm.BookingSummary;
+import com.faex.bookings.orm.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static com.faex.bookings.service.TestBookings.T0;
+import static com.faex.bookings.service.TestBookings.booking;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+	"bookings.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+	"bookings.replica.interval-ms=3600000", // replicated by the test, so nothing races its assertions
+	"bookings.replica.max-staleness-ms=60000"
+})
+public class BookingReplicaTest {
+	private static final String JOURNAL_PATH = "target/journal-" + UUID.randomUUID(); // replicate only this run's events
+
+	@DynamicPropertySource
+	static void journalPath(DynamicPropertyRegistry registry) {
+		registry.add("bookings.journal.path", () -> JOURNAL_PATH);
+	}
+
+	@Test
+	public void testLookupsMoveToReplicaOnceReplicated() throws Exception {
+		assertThat(dataSource).isInstanceOf(ReplicaRoutingDataSource.class);
+		var bookingEntity = bookingService.createBooking(booking(1, 2));
+		var id = String.valueOf(bookingEntity.getId());
+
+		// read-your-writes: the replica has not applied the booking yet, so the primary answers
+		var primaryReads = reads(BookingReplica.PRIMARY);
+		assertThat(bookingService.getBooking(id).getCheckIn()).isEqualTo(T0 + 1);
+		assertThat(reads(BookingReplica.PRIMARY)).isEqualTo(primaryReads + 1);
+
+		awaitReplicated(bookingEntity.getId(), 0);
+		var replicaReads = reads(BookingReplica.REPLICA);
+		assertThat(bookingService.getBooking(id).getCheckIn()).isEqualTo(T0 + 1);
+		assertThat(bookingService.findBookings("tester@testing.test", null, 0, 10)).extracting(BookingSummary::getId).contains(bookingEntity.getId());
+		assertThat(reads(BookingReplica.REPLICA)).isEqualTo(replicaReads + 2);
+
+		bookingService.updateBooking(id, booking(2, 3));
+		// scans only wait for the replica to be within the staleness bound, not for this writer's update
+		replicaReads = reads(BookingReplica.REPLICA);
+		assertThat(bookingService.findBookings(null, BookingEntity.Status.CONFIRMED, 0, 10)).extracting(BookingSummary::getId).contains(bookingEntity.getId());
+		assertThat(reads(BookingReplica.REPLICA)).isEqualTo(replicaReads + 1);
+		assertThat(bookingService.findBookings("tester@testing.test", null, 0, 10))
+			.filteredOn(bookingSummary -> bookingSummary.getId() == bookingEntity.getId())
+			.extracting(BookingSummary::getCheckIn).containsExactly(T0 + 2);
+		bookingService.deleteBooking(id);
+		awaitReplicated(bookingEntity.getId(), 2);
+		assertThat(bookingService.findBookings(null, BookingEntity.Status.DELETED, 0, 10)).extracting(BookingSummary::getId).contains(bookingEntity.getId());
+	}
+
+	@Test
+	public void testFailedJournalWriteReseedsReplica() throws Exception {
+		var bookingEntity = bookingService.createBooking(booking(3, 4));
+		awaitReplicated(bookingEntity.getId(), 0);
+
+		// a committed change whose journal append failed: the replica can only get it by copying the primary again
+		var primary = new JdbcTemplate(((ReplicaRoutingDataSource) dataSource).getPrimary());
+		primary.update("UPDATE booking_entity SET version = 1, check_in = ? WHERE id = ?", T0 + 5, bookingEntity.getId());
+		bookingReplica.written(bookingEntity, CompletableFuture.failedFuture(new IOException("disk full")));
+		assertThat(bookingReplica.isFresh(bookingEntity.getId())).isFalse();
+		assertThat(bookingReplica.isFresh(null)).isFalse();
+
+		bookingReplica.replicate();
+		awaitReplicated(bookingEntity.getId(), 1);
+		assertThat(bookingReplica.isFresh(null)).isTrue();
+		assertThat(bookingService.getBooking(String.valueOf(bookingEntity.getId())).getCheckIn()).isEqualTo(T0 + 5);
+	}
+
+	@Autowired
+	private BookingService bookingService;
+
+	@Autowired
+	private BookingReplica bookingReplica;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@AfterEach
+	public void tearDown() {
+		bookingService.deleteDates();
+	}
+
+	private double reads(String source) {
+		var counter = meterRegistry.find("bookings.reads").tag("source", source).counter();
+		return counter == null ? 0 : counter.count();
+	}
+
+	private void awaitReplicated(long id, long version) throws InterruptedException {
+		var replica = new JdbcTemplate(((ReplicaRoutingDataSource) dataSource).getReplica());
+		for (int i = 0; i < 100; i++) {
+			bookingReplica.replicate();
+			if (bookingReplica.isFresh(id) && bookingReplica.isFresh("tester@testing.test")
+				&& replica.queryForObject("SELECT COUNT(*) FROM booking_entity WHERE id = ? AND version = ?", Integer.class, id, version) == 1) {
+				return;
+			}
+			Thread.sleep(50);
+		}
+		throw new AssertionError("Booking " + id + " version " + version + " not replicated");
+	}
+}
@@ -0,0 +1,301 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.orm.ArchivedBookingEntity;
+import com.faex.bookings.orm.ArchivedBookingRepository;
+import com.faex.bookings.orm.BookingDateEntity;
+import com.faex.bookings.orm.BookingDateRepository;
+import com.faex.bookings.orm.BookingEntity;
+import com.faex.bookings.orm.BookingRepository;
+import com.faex.bookings.rest.AvailabilityDate;
+import com.faex.bookings.rest.BatchBookingResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static com.faex.bookings.rest.AvailabilityDate.Status.AVAILABLE;
+import static com.faex.bookings.rest.AvailabilityDate.Status.UNAVAILABLE;
+import static com.faex.bookings.service.TestBookings.T0;
+import static com.faex.bookings.service.TestBookings.booking;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {"spring.jpa.properties.hibernate.generate_statistics=true", "bookings.capacity=2", "bookings.properties=0,1,2",
+	"bookings.archiver.batch-size=1", "bookings.archiver.pause-ms=0"})
+public class BookingServiceTest {
+
+	@Test
+	public void testCreateBookingStatements() {
+		bookingService.createBooking(booking(1, 2)); // allocate a pooled id block
+		statistics.clear();
+		bookingService.createBooking(booking(2, 5));
+		// select inventory rows, insert booking, one guarded update for all dates
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(4); // plus one batch creating the new inventory rows
+		statistics.clear();
+		bookingService.createBooking(booking(2, 5));
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void testUpdateBookingStatements() {
+		var bookingEntity = bookingService.createBooking(booking(1, 4));
+		statistics.clear();
+		bookingService.updateBooking(String.valueOf(bookingEntity.getId()), booking(5, 8));
+		// two booking reads, select inventory rows, guarded release and claim, update booking
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(7); // plus one batch creating the new inventory rows
+	}
+
+	@Test
+	public void testDeleteBookingStatements() {
+		var bookingEntity = bookingService.createBooking(booking(1, 4));
+		statistics.clear();
+		bookingService.deleteBooking(String.valueOf(bookingEntity.getId()));
+		// read booking, guarded release, update booking
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void testDeleteDatesStatements() {
+		bookingService.createBooking(booking(1, 4));
+		bookingService.createBooking(booking(5, 8));
+		statistics.clear();
+		bookingService.deleteDates();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	public void testCreateBookingsStatements() {
+		bookingService.createBooking(booking(20, 21)); // allocate a pooled id block
+		statistics.clear();
+		var results = bookingService.createBookings(IntStream.range(0, 10).mapToObj(i -> booking(i / 2, i / 2 + 1)).toList());
+		assertThat(results).extracting(BatchBookingResult::getStatus).containsOnly(BatchBookingResult.Status.CREATED);
+		// select inventory rows, create the 5 missing ones, one booking batch, one guarded update per distinct date
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(8);
+		assertThat(bookingService.createBookings(List.of(booking(0, 1), booking(5, 6)))).extracting(BatchBookingResult::getStatus)
+			.containsExactly(BatchBookingResult.Status.CONFLICT, BatchBookingResult.Status.CREATED);
+	}
+
+	@Test
+	public void testCreateBookingsFailsEveryBookingWhenClaimingThrows() {
+		// an unknown property makes the claim throw part way through the batch
+		assertThat(bookingService.createBookings(List.of(booking(1, 2), booking(9, 2, 3), booking(3, 4)))).extracting(BatchBookingResult::getStatus)
+			.containsOnly(BatchBookingResult.Status.FAILED);
+		assertThat(bookingService.createBookings(List.of(booking(1, 2)))).extracting(BatchBookingResult::getStatus)
+			.containsExactly(BatchBookingResult.Status.CREATED);
+	}
+
+	@Test
+	public void testCreateBookingUpToCapacity() {
+		bookingService.createBooking(booking(1, 3));
+		bookingService.createBooking(booking(2, 4));
+		assertThatThrownBy(() -> bookingService.createBooking(booking(2, 3))).isInstanceOf(DatesUnavailableException.class);
+		var dates = bookingService.getAvailability(BookingRange.builder()
+			.from(T0)
+			.to(T0 + 5)
+			.build()).getDates();
+		assertThat(dates).extracting(AvailabilityDate::getRemaining).containsExactly(2, 1, 0, 1, 2);
+		assertThat(dates).extracting(AvailabilityDate::getStatus).containsExactly(AVAILABLE, AVAILABLE, UNAVAILABLE, AVAILABLE, AVAILABLE);
+	}
+
+	@Test
+	public void testCreateBookingIdempotentUnderConcurrency() throws Exception {
+		var key = UUID.randomUUID().toString();
+		var executor = Executors.newFixedThreadPool(8);
+		var results = executor.invokeAll(Collections.nCopies(8, (Callable<BookingEntity>) () -> bookingService.createBooking(booking(1, 2), key)));
+		executor.shutdown();
+		var ids = new HashSet<Long>();
+		for (var result : results) {
+			ids.add(result.get().getId());
+		}
+		assertThat(ids).hasSize(1);
+		assertThat(bookingService.getAvailability(BookingRange.builder().from(T0 + 1).to(T0 + 2).build()).getDates())
+			.extracting(AvailabilityDate::getRemaining).containsExactly(1);
+	}
+
+	@Test
+	public void testIdempotencyKeysFingerprintRequestsAndExpire() {
+		var fingerprint = IdempotencyKeys.fingerprint("create", booking(1, 2));
+		assertThat(fingerprint).hasSize(64).isEqualTo(IdempotencyKeys.fingerprint("create", booking(1, 2)));
+		assertThat(fingerprint).isNotEqualTo(IdempotencyKeys.fingerprint("update", booking(1, 2)));
+		assertThat(fingerprint).isNotEqualTo(IdempotencyKeys.fingerprint("create", booking(1, 3)));
+
+		var key = UUID.randomUUID().toString();
+		bookingService.createBooking(booking(1, 2), key);
+		assertThatThrownBy(() -> bookingService.createBooking(booking(3, 4), key)).hasMessageContaining("different request");
+		idempotencyKeys.purge();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_key WHERE id = ?", Integer.class, "create:" + key)).isOne();
+		idempotencyKeys.purge(System.currentTimeMillis() + 1);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_key WHERE id = ?", Integer.class, "create:" + key)).isZero();
+		assertThat(bookingService.createBooking(booking(3, 4), key).getCheckIn()).isEqualTo(T0 + 3);
+	}
+
+	@Test
+	public void testAvailabilitySlicesWindowFragments() {
+		var range = BookingRange.builder().from(T0).to(T0 + 5).build();
+		var dates = bookingService.getAvailability(range).getDates();
+		assertThat(bookingService.getAvailability(range).getDates()).zipSatisfy(dates, (actual, expected) -> assertThat(actual).isSameAs(expected));
+	}
+
+	@Test
+	public void testArchiveCancelledAndCheckedOutBookings() {
+		var confirmed = bookingService.createBooking(booking(1, 2));
+		var cancelled = bookingService.createBooking(booking(2, 3));
+		bookingService.deleteBooking(String.valueOf(cancelled.getId()));
+		var checkedOut = bookingRepository.save(BookingEntity.builder()
+			.status(BookingEntity.Status.CONFIRMED)
+			.checkIn(T0 - 10)
+			.checkOut(T0 - 8)
+			.email("tester@testing.test")
+			.fullName("Tester")
+			.build());
+		dateRepository.save(BookingDateEntity.builder().date(T0 - 9).capacity(2).booked(1).build());
+		bookingArchiver.archive();
+		assertThat(bookingRepository.existsById(confirmed.getId())).isTrue();
+		assertThat(bookingRepository.findAllById(List.of(cancelled.getId(), checkedOut.getId()))).isEmpty();
+		assertThat(archivedBookingRepository.findAllById(List.of(cancelled.getId(), checkedOut.getId())))
+			.extracting(ArchivedBookingEntity::getStatus)
+			.containsExactlyInAnyOrder(BookingEntity.Status.DELETED, BookingEntity.Status.CONFIRMED);
+		assertThat(dateRepository.existsById(new BookingDateEntity.Key(0, T0 - 9))).isFalse();
+		assertThat(dateRepository.existsById(new BookingDateEntity.Key(0, T0 + 1))).isTrue();
+		// batches are timed apart from the request timers
+		assertThat(meterRegistry.find("bookings.operation").tag("operation", "archive").timer()).isNull();
+		assertThat(meterRegistry.get("bookings.archive.batch").tag("reason", BookingArchiver.CANCELLED).timer().count()).isPositive();
+	}
+
+	@Test
+	public void testPropertiesBookIndependently() {
+		bookingService.createBooking(booking(1, 1, 2));
+		var bookingEntity = bookingService.createBooking(booking(1, 1, 2));
+		assertThatThrownBy(() -> bookingService.createBooking(booking(1, 1, 2))).isInstanceOf(DatesUnavailableException.class);
+		bookingService.createBooking(booking(2, 1, 2));
+		assertThat(IntStream.of(0, 1, 2).map(property -> bookingService.getAvailability(BookingRange.builder()
+			.property(property)
+			.from(T0 + 1)
+			.to(T0 + 2)
+			.build()).getDates().get(0).getRemaining())).containsExactly(2, 0, 1);
+		assertThatThrownBy(() -> bookingService.updateBooking(String.valueOf(bookingEntity.getId()), booking(2, 2, 3)))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void testHoldsClaimUntilConvertedOrReleased() {
+		var first = bookingService.placeHold(AvailabilityIndex.DEFAULT_PROPERTY, List.of(T0 + 1));
+		var second = bookingService.placeHold(AvailabilityIndex.DEFAULT_PROPERTY, List.of(T0 + 1));
+		assertThatThrownBy(() -> bookingService.createBooking(booking(1, 2))).isInstanceOf(DatesUnavailableException.class);
+		assertThatThrownBy(() -> bookingService.createBooking(held(booking(1, 3), second))).isInstanceOf(IllegalArgumentException.class);
+		var bookingEntity = bookingService.createBooking(held(booking(1, 2), first));
+		assertThat(bookingRepository.existsById(bookingEntity.getId())).isTrue();
+		assertThatThrownBy(() -> bookingService.createBooking(held(booking(1, 2), first))).isInstanceOf(IllegalArgumentException.class);
+		assertThat(bookingService.releaseHold(second.id())).isTrue();
+		assertThat(bookingService.releaseHold(second.id())).isFalse();
+		bookingService.createBooking(booking(1, 2));
+	}
+
+	@Test
+	public void testHoldsExpireOnTheTimingWheel() throws Exception {
+		var holds = new BookingHolds(dateClaims, bookingMetrics, 50, 10);
+		for (int i = 0; i < 2; i++) {
+			assertThat(dateClaims.claimAll(AvailabilityIndex.DEFAULT_PROPERTY, List.of(T0 + 3))).isTrue();
+			holds.add(AvailabilityIndex.DEFAULT_PROPERTY, List.of(T0 + 3));
+		}
+		holds.expire();
+		assertThat(holds.size()).isEqualTo(2);
+		assertThat(dateClaims.claimAll(AvailabilityIndex.DEFAULT_PROPERTY, List.of(T0 + 3))).isFalse();
+		Thread.sleep(100);
+		holds.expire();
+		assertThat(holds.size()).isZero();
+		assertThat(dateClaims.claimAll(AvailabilityIndex.DEFAULT_PROPERTY, List.of(T0 + 3, T0 + 3))).isTrue();
+		dateClaims.releaseAll(AvailabilityIndex.DEFAULT_PROPERTY, List.of(T0 + 3, T0 + 3));
+	}
+
+	@Test
+	public void testTakenHoldsSurviveFailedConversions() throws Exception {
+		var holds = new BookingHolds(dateClaims, bookingMetrics, 50, 10);
+		var dates = List.of(T0 + 3, T0 + 3);
+		assertThat(dateClaims.claimAll(AvailabilityIndex.DEFAULT_PROPERTY, dates)).isTrue();
+		var hold = holds.add(AvailabilityIndex.DEFAULT_PROPERTY, dates);
+		holds.take(hold.id(), AvailabilityIndex.DEFAULT_PROPERTY, dates);
+		assertThatThrownBy(() -> holds.take(hold.id(), AvailabilityIndex.DEFAULT_PROPERTY, dates)).isInstanceOf(IllegalArgumentException.class);
+		assertThat(holds.release(hold.id())).isFalse();
+		holds.restore(hold.id()); // the booking failed before its expiry: the hold is back
+		assertThat(holds.size()).isOne();
+		holds.take(hold.id(), AvailabilityIndex.DEFAULT_PROPERTY, dates);
+		Thread.sleep(100);
+		holds.expire(); // not on the wheel while taken
+		assertThat(dateClaims.claimAll(AvailabilityIndex.DEFAULT_PROPERTY, List.of(T0 + 3))).isFalse();
+		holds.restore(hold.id()); // failed after its expiry: the claims go back at once
+		assertThat(holds.size()).isZero();
+		assertThat(dateClaims.claimAll(AvailabilityIndex.DEFAULT_PROPERTY, dates)).isTrue();
+		var converted = holds.add(AvailabilityIndex.DEFAULT_PROPERTY, dates);
+		holds.take(converted.id(), AvailabilityIndex.DEFAULT_PROPERTY, dates);
+		holds.converted(converted.id());
+		assertThat(holds.size()).isZero();
+		dateClaims.releaseAll(AvailabilityIndex.DEFAULT_PROPERTY, dates);
+	}
+
+	@Autowired
+	private BookingService bookingService;
+
+	@Autowired
+	private BookingArchiver bookingArchiver;
+
+	@Autowired
+	private BookingRepository bookingRepository;
+
+	@Autowired
+	private ArchivedBookingRepository archivedBookingRepository;
+
+	@Autowired
+	private BookingDateRepository dateRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private DateClaims dateClaims;
+
+	@Autowired
+	private BookingMetrics bookingMetrics;
+
+	@Autowired
+	private IdempotencyKeys idempotencyKeys;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	public void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		bookingService.deleteDates();
+	}
+
+	private static Booking held(Booking booking, BookingHolds.Hold hold) {
+		booking.setHold(hold.id());
+		return booking;
+	}
+}
@@ -0,0 +1,83 @@
+package com.faex.bookings.service;
+
+import com.faex.bookings.rest.AvailabilityDate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static com.faex.bookings.service.TestBookings.T0;
+import static com.faex.bookings.service.TestBookings.booking;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "bookings.writer.mode=group")
+public class GroupCommitWriterTest {
+
+	@Test
+	public void testGroupCommitMode() throws Exception {
+		assertThat(Thread.getAllStackTraces().keySet()).extracting(Thread::getName).contains("booking-writer");
+		var bookingEntity = bookingService.createBooking(booking(1));
+		bookingService.updateBooking(String.valueOf(bookingEntity.getId()), booking(2));
+		assertThat(bookingService.getBooking(String.valueOf(bookingEntity.getId())).getCheckIn()).isEqualTo(T0 + 2);
+		assertThat(remaining()).containsExactly(1, 1, 0, 1);
+
+		// concurrent bookings of the same night are decided in order on the writer thread: exactly one wins
+		var executor = Executors.newFixedThreadPool(8);
+		try {
+			var results = executor.invokeAll(IntStream.range(0, 8).<Callable<Boolean>>mapToObj(i -> () -> {
+				try {
+					bookingService.createBooking(booking(3));
+					return true;
+				} catch (DatesUnavailableException e) {
+					return false;
+				}
+			}).toList());
+			var created = 0;
+			for (var result : results) {
+				created += result.get() ? 1 : 0;
+			}
+			assertThat(created).isEqualTo(1);
+		} finally {
+			executor.shutdown();
+		}
+		assertThat(remaining()).containsExactly(1, 1, 0, 0);
+
+		bookingService.deleteBooking(String.valueOf(bookingEntity.getId()));
+		assertThat(remaining()).containsExactly(1, 1, 1, 0);
+	}
+
+	@Test
+	public void testClosedWriterRejectsCommands() {
+		var writer = new GroupCommitWriter(new TransactionTemplate(transactionManager), 4, 4, 10);
+		assertThat(writer.submit(new BookingCommand<>(() -> {}, () -> "written", () -> {})).join()).isEqualTo("written");
+		writer.close();
+		assertThatThrownBy(() -> writer.submit(new BookingCommand<>(() -> {}, () -> "written", () -> {})).get())
+			.isInstanceOf(ExecutionException.class)
+			.hasRootCauseMessage("Booking writer stopped");
+	}
+
+	@Autowired
+	private BookingService bookingService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	public void tearDown() {
+		bookingService.deleteDates();
+	}
+
+	private List<Integer> remaining() {
+		return bookingService.getAvailability(BookingRange.builder().from(T0).to(T0 + 4).build()).getDates().stream()
+			.map(AvailabilityDate::getRemaining).toList();
+	}
+}
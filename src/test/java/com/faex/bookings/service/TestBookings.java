@@ -0,0 +1,31 @@
+package com.faex.bookings.service;
+
+import java.time.LocalDate;
+import java.util.stream.IntStream;
+
+// Shared fixture of the service tests: stays counted in nights from tomorrow in the service's time zone
+final class TestBookings {
+	static final int T0 = (int) LocalDate.now(DayCounters.ZONE_ID).plusDays(1).toEpochDay();
+
+	private TestBookings() {
+	}
+
+	static Booking booking(int night) {
+		return booking(night, night + 1);
+	}
+
+	static Booking booking(int checkIn, int checkOut) {
+		return booking(AvailabilityIndex.DEFAULT_PROPERTY, checkIn, checkOut);
+	}
+
+	static Booking booking(int property, int checkIn, int checkOut) {
+		return Booking.builder()
+			.property(property)
+			.dates(IntStream.range(T0 + checkIn, T0 + checkOut).boxed().toList())
+			.checkIn(T0 + checkIn)
+			.checkOut(T0 + checkOut)
+			.email("tester@testing.test")
+			.fullName("Tester")
+			.build();
+	}
+}
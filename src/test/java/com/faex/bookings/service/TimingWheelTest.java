@@ -0,0 +1,50 @@
+package com.faex.bookings.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TimingWheelTest {
+
+	@Test
+	public void testTimeoutsExpireOnTheirTickAcrossLevels() {
+		var wheel = new TimingWheel<Long>(1, 1000);
+		var random = new Random(42);
+		var deadlines = new HashMap<Long, Long>();
+		for (long i = 0; i < 10_000; i++) {
+			// spread over all four levels, including deadlines exactly on turn boundaries
+			var deadline = 1000 + (i % 10 == 0 ? 1L << (6 * (1 + i % 3)) : 1 + random.nextInt(1 << 20));
+			deadlines.put(i, deadline);
+			wheel.schedule(i, deadline);
+		}
+		var cancelled = wheel.schedule(-1L, 1500);
+		assertThat(wheel.cancel(cancelled)).isTrue();
+		assertThat(wheel.cancel(cancelled)).isFalse();
+		assertThat(wheel.size()).isEqualTo(10_000);
+
+		var expired = new ArrayList<Long>();
+		for (long now = 1000; now <= 1000 + (1 << 20); now += 1 + random.nextInt(5000)) {
+			var at = now;
+			wheel.advance(now, task -> {
+				assertThat(deadlines.get(task)).isLessThanOrEqualTo(at);
+				expired.add(task);
+			});
+			assertThat(wheel.size()).isEqualTo(10_000 - expired.size());
+			assertThat(deadlines.values().stream().filter(deadline -> deadline <= at).count()).isEqualTo(expired.size());
+		}
+		wheel.advance(1000 + (1 << 20), expired::add);
+		assertThat(expired).hasSize(10_000).doesNotContain(-1L);
+	}
+
+	@Test
+	public void testDeadlineBeyondHorizonIsRejected() {
+		var wheel = new TimingWheel<String>(100, 0);
+		wheel.schedule("due", wheel.getHorizonMillis());
+		assertThatThrownBy(() -> wheel.schedule("late", wheel.getHorizonMillis() + 100)).isInstanceOf(IllegalArgumentException.class);
+	}
+}